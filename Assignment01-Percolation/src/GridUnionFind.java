@@ -0,0 +1,146 @@
+import java.util.Arrays;
+
+public class GridUnionFind {
+
+    /** component touches the top row */
+    public static final int TOP = 1;
+    /** component touches the bottom row */
+    public static final int BOTTOM = 2;
+
+    // parent[i] >= 0: link to the parent of i
+    // parent[i] <  0: i is a root of ~parent[i] elements
+    private final int[] parent;
+    private final long[] side;      // TOP/BOTTOM flags, two bits per element, valid at roots
+    final PercolationMetrics.Counters metrics = PercolationMetrics.counters();   // null unless enabled
+
+    /**
+     * create n singleton components, each with size 1 and no flags
+     * @param n
+     * @throws java.lang.IllegalArgumentException
+     */
+    public GridUnionFind(int n) {
+        if (n <= 0)
+            throw new java.lang.IllegalArgumentException();
+
+        parent = new int[n];
+        Arrays.fill(parent, ~1);
+        side = new long[(int) ((2L*n + 63) >>> 6)];
+    }
+
+    /**
+     * root of the component containing p, halving the path on the way up
+     * @param p
+     * @return
+     */
+    public int find(int p) {
+        int q, steps = 0;
+        while ((q = parent[p]) >= 0) {
+            int r = parent[q];
+            if (r < 0) {
+                p = q;
+                steps++;
+                break;
+            }
+            parent[p] = r;
+            p = r;
+            steps += 2;
+        }
+        if (PercolationMetrics.ENABLED) metrics.find(steps);
+        return p;
+    }
+
+    /**
+     * merge the components containing p and q by size, or-ing their flags
+     * @param p
+     * @param q
+     * @return the root of the merged component
+     */
+    public int union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) return rootP;
+        return unionRoots(rootP, rootQ);
+    }
+
+    /**
+     * merge the components with distinct roots rootP and rootQ, for a caller
+     * that has found them already
+     * @param rootP
+     * @param rootQ
+     * @return the root of the merged component
+     */
+    public int unionRoots(int rootP, int rootQ) {
+        if (PercolationMetrics.ENABLED) metrics.unions++;
+
+        int sizeP = ~parent[rootP];
+        int sizeQ = ~parent[rootQ];
+
+        // sizes sum to at most n, so the merged size never overflows
+        if (sizeP < sizeQ) {
+            parent[rootP] = rootQ;
+            parent[rootQ] = ~(sizeP + sizeQ);
+            setFlags(rootQ, flagsOfRoot(rootP));
+            return rootQ;
+        }
+        parent[rootQ] = rootP;
+        parent[rootP] = ~(sizeP + sizeQ);
+        setFlags(rootP, flagsOfRoot(rootQ));
+        return rootP;
+    }
+
+    /**
+     * number of elements in the component containing p
+     * @param p
+     * @return
+     */
+    public int size(int p) {
+        return ~parent[find(p)];
+    }
+
+    /**
+     * number of elements in the component with root root, for a caller
+     * that has found it already
+     * @param root
+     * @return
+     */
+    public int sizeOfRoot(int root) {
+        return ~parent[root];
+    }
+
+    /**
+     * set flag on the component containing p
+     * @param p
+     * @param flag TOP or BOTTOM
+     */
+    public void mark(int p, int flag) {
+        setFlags(find(p), flag);
+    }
+
+    /**
+     * flags of the component containing p
+     * @param p
+     * @return
+     */
+    public int flags(int p) {
+        return flagsOfRoot(find(p));
+    }
+
+    private int flagsOfRoot(int root) {
+        return (int) (side[root >>> 5] >>> ((root & 31) << 1)) & 3;
+    }
+
+    private void setFlags(int root, int flags) {
+        side[root >>> 5] |= (long) flags << ((root & 31) << 1);
+    }
+
+    /**
+     * are p and q in the same component?
+     * @param p
+     * @param q
+     * @return
+     */
+    public boolean connected(int p, int q) {
+        return find(p) == find(q);
+    }
+
+}
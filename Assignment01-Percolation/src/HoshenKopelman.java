@@ -0,0 +1,263 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+public class HoshenKopelman {
+
+    private static final int BLOCKED = -1;
+
+    private final int size;
+    private int rows;
+    private long openSites;
+    private long clusters;
+    private boolean percolates;
+
+    // labels of the previous and current row, BLOCKED or 0..labels-1 once a
+    // row is finished; while a row is scanned, current holds provisional ids
+    // in a union-find over [0, labels) for the row above and fresh ids after it
+    private int[] previous, current;
+    private int labels;
+    private final int[] parent;
+    private boolean[] top, nextTop;     // label's cluster reaches the top row
+    private final int[] relabel;
+
+    /**
+     * create a checker for an n-by-n grid that is fed one row at a time,
+     * keeping O(n) state however many rows it has seen
+     * @param n
+     * @throws java.lang.IllegalArgumentException
+     */
+    public HoshenKopelman(int n) {
+        if (n <= 0 || n > Integer.MAX_VALUE / 2)
+            throw new java.lang.IllegalArgumentException();
+
+        size = n;
+        previous = new int[n];
+        current = new int[n];
+        parent = new int[2*n];
+        top = new boolean[2*n];
+        nextTop = new boolean[2*n];
+        relabel = new int[2*n];
+        java.util.Arrays.fill(previous, BLOCKED);
+    }
+
+    /**
+     * read an n-by-n grid from in, one byte per site in row-major order:
+     * '1' open, '0' blocked, whitespace ignored
+     * @param n
+     * @param in
+     * @return
+     * @throws java.lang.IllegalArgumentException on any other byte or a short grid
+     * @throws java.io.UncheckedIOException
+     */
+    public static HoshenKopelman read(int n, InputStream in) {
+        if (in == null)
+            throw new java.lang.IllegalArgumentException();
+
+        HoshenKopelman hk = new HoshenKopelman(n);
+        long[] row = new long[(n + 63) >>> 6];
+        byte[] buffer = new byte[1 << 16];
+        int col = 0;
+
+        try {
+            int limit;
+            while (hk.rows < n && (limit = in.read(buffer, 0, buffer.length)) >= 0) {
+                for (int i = 0; i < limit && hk.rows < n; i++) {
+                    if (!hk.accept(buffer[i], row, col)) continue;
+                    if (++col == n) {
+                        hk.addRow(row);
+                        java.util.Arrays.fill(row, 0);
+                        col = 0;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (hk.rows < n)
+            throw new java.lang.IllegalArgumentException("grid ends after " + hk.rows + " rows");
+        return hk;
+    }
+
+    /**
+     * same as above, reading from the remaining bytes of in
+     * @param n
+     * @param in
+     * @return
+     * @throws java.lang.IllegalArgumentException on any other byte or a short grid
+     */
+    public static HoshenKopelman read(int n, ByteBuffer in) {
+        if (in == null)
+            throw new java.lang.IllegalArgumentException();
+
+        HoshenKopelman hk = new HoshenKopelman(n);
+        long[] row = new long[(n + 63) >>> 6];
+        int col = 0;
+
+        while (hk.rows < n && in.hasRemaining()) {
+            if (!hk.accept(in.get(), row, col)) continue;
+            if (++col == n) {
+                hk.addRow(row);
+                java.util.Arrays.fill(row, 0);
+                col = 0;
+            }
+        }
+
+        if (hk.rows < n)
+            throw new java.lang.IllegalArgumentException("grid ends after " + hk.rows + " rows");
+        return hk;
+    }
+
+    // put site byte b into row at col; false for whitespace
+    private boolean accept(byte b, long[] row, int col) {
+        if (b == '1') row[col >>> 6] |= 1L << col;
+        else if (b != '0') {
+            if (b >= 0 && b <= ' ') return false;
+            throw new java.lang.IllegalArgumentException("bad site byte " + b + " in row " + (rows + 1));
+        }
+        return true;
+    }
+
+    /**
+     * add the next row, bit c (of word c/64) set when column c+1 is open
+     * @param row
+     * @throws java.lang.IllegalArgumentException if n rows were added already
+     */
+    public void addRow(long[] row) {
+        if (row == null || row.length < (size + 63) >>> 6 || rows == size)
+            throw new java.lang.IllegalArgumentException();
+
+        // ids [0, labels) stand for the clusters of the row above
+        int next = labels;
+        for (int i = 0; i < labels; i++)
+            parent[i] = i;
+
+        for (int col = 0; col < size; col++) {
+            if ((row[col >>> 6] & (1L << col)) == 0) {
+                current[col] = BLOCKED;
+                continue;
+            }
+            openSites++;
+
+            int id;
+            if (col > 0 && current[col-1] != BLOCKED) id = current[col-1];
+            else {
+                id = next++;
+                parent[id] = id;
+                top[id] = rows == 0;
+                clusters++;
+            }
+            if (previous[col] != BLOCKED && union(id, previous[col])) clusters--;
+            current[col] = id;
+        }
+
+        // relabel the row's clusters 0..labels-1; clusters of the row above
+        // that did not continue into this row are finished and drop out
+        java.util.Arrays.fill(relabel, 0, next, BLOCKED);
+        int count = 0;
+        for (int col = 0; col < size; col++) {
+            if (current[col] == BLOCKED) continue;
+            int root = find(current[col]);
+            if (relabel[root] == BLOCKED) {
+                nextTop[count] = top[root];
+                relabel[root] = count++;
+            }
+            current[col] = relabel[root];
+        }
+
+        int[] swap = previous;
+        previous = current;
+        current = swap;
+        boolean[] flags = top;
+        top = nextTop;
+        nextTop = flags;
+        labels = count;
+        rows++;
+
+        if (rows == size) {
+            for (int i = 0; i < labels && !percolates; i++)
+                percolates = top[i];
+        }
+    }
+
+    private int find(int p) {
+        while (parent[p] != p) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
+        }
+        return p;
+    }
+
+    // merge the clusters of p and q; false if they were merged already
+    private boolean union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) return false;
+
+        // link the younger root under the older, so ids of the row above stay roots longest
+        if (rootP < rootQ) {
+            parent[rootQ] = rootP;
+            top[rootP] |= top[rootQ];
+        }
+        else {
+            parent[rootP] = rootQ;
+            top[rootQ] |= top[rootP];
+        }
+        return true;
+    }
+
+    /**
+     * number of rows added so far
+     * @return
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * number of open sites in the rows added so far
+     * @return
+     */
+    public long numberOfOpenSites() {
+        return openSites;
+    }
+
+    /**
+     * number of clusters (components of open sites) in the rows added so far
+     * @return
+     */
+    public long numberOfClusters() {
+        return clusters;
+    }
+
+    /**
+     * does the system percolate? false until all n rows are added
+     * @return
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    /**
+     * test client: check the n-by-n grid in the named file, or on standard input
+     * @param args
+     */
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+
+        HoshenKopelman hk;
+        try (InputStream in = args.length > 1 ? new FileInputStream(args[1]) : System.in) {
+            hk = read(n, in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        System.out.println("open sites = " + hk.numberOfOpenSites());
+        System.out.println("clusters   = " + hk.numberOfClusters());
+        System.out.println(hk.percolates() ? "percolates" : "does not percolate");
+    }
+
+}
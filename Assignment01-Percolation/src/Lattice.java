@@ -0,0 +1,223 @@
+public class Lattice {
+
+    private final int dimension;
+    private final int side;
+    private final int sites;
+    private final int layer;        // sites per slice across the spanning axis
+    private final int degree;
+    private final byte[] boundary;  // per site, its boundary class: sum over axes of 3^a times
+                                    // 0 on the low face, 2 on the high face, 1 inside
+    private final int[] offset;     // degree entries per class: neighbour minus site, 0 where cut off
+    private final long bondCount;
+    private volatile int[] bonds;   // two end sites per bond, built on first use
+
+    private Lattice(int dimension, int side, boolean periodic) {
+        int total = 1;
+        try {
+            for (int a = 0; a < dimension; a++)
+                total = Math.multiplyExact(total, side);
+        } catch (ArithmeticException e) {
+            throw new java.lang.IllegalArgumentException("lattice too large");
+        }
+
+        this.dimension = dimension;
+        this.side = side;
+        this.sites = total;
+        this.layer = sites / side;
+        this.degree = 2 * dimension;
+        // with side <= 2 wrapping would only duplicate an existing neighbour
+        boolean wrap = periodic && side > 2;
+
+        int[] stride = new int[dimension];
+        int classes = 1;
+        for (int a = dimension-1, s = 1; a >= 0; a--, s *= side) {
+            stride[a] = s;
+            classes *= 3;
+        }
+
+        // offsets for a representative coordinate of each class on each axis;
+        // axis 0 is the spanning axis (top to bottom) and never wraps
+        this.offset = new int[classes * degree];
+        for (int cls = 0; cls < classes; cls++) {
+            for (int a = 0, rest = cls; a < dimension; a++, rest /= 3) {
+                int c = rest % 3 == 0 ? 0 : (rest % 3 == 2 ? side-1 : 1);
+                int step = stride[a];
+                offset[cls * degree + 2*a] = c > 0 ? -step : (wrap && a > 0 ? (side-1) * step : 0);
+                offset[cls * degree + 2*a + 1] = c < side-1 ? step : (wrap && a > 0 ? -(side-1) * step : 0);
+            }
+        }
+
+        this.boundary = new byte[sites];
+        int[] coord = new int[dimension];
+        for (int site = 0; site < sites; site++) {
+            int cls = 0;
+            for (int a = dimension-1; a >= 0; a--)
+                cls = 3 * cls + (coord[a] == 0 ? 0 : (coord[a] == side-1 ? 2 : 1));
+            boundary[site] = (byte) cls;
+
+            // advance the mixed-radix coordinate, last axis fastest
+            for (int a = dimension-1; a >= 0 && ++coord[a] == side; a--)
+                coord[a] = 0;
+        }
+
+        // axis 0 never wraps: one bond per site but the last slice; a wrapped axis: one per site
+        this.bondCount = (sites - layer) + (long) (dimension-1) * (wrap ? sites : sites - layer);
+    }
+
+    /**
+     * n-by-n square lattice; if periodic, columns wrap around
+     * @param n
+     * @param periodic
+     * @return
+     * @throws java.lang.IllegalArgumentException
+     */
+    public static Lattice square(int n, boolean periodic) {
+        return hypercubic(2, n, periodic);
+    }
+
+    /**
+     * n-by-n-by-n cubic lattice; if periodic, the two transverse axes wrap around
+     * @param n
+     * @param periodic
+     * @return
+     * @throws java.lang.IllegalArgumentException
+     */
+    public static Lattice cubic(int n, boolean periodic) {
+        return hypercubic(3, n, periodic);
+    }
+
+    /**
+     * hypercubic lattice with side n in the given dimension (at most 5, so a
+     * site's 3^dimension boundary classes fit in a byte), spanning along
+     * axis 0; if periodic, every other axis wraps around
+     * @param dimension
+     * @param n
+     * @param periodic
+     * @return
+     * @throws java.lang.IllegalArgumentException
+     */
+    public static Lattice hypercubic(int dimension, int n, boolean periodic) {
+        if (dimension <= 0 || dimension > 5 || n <= 0)
+            throw new java.lang.IllegalArgumentException();
+
+        return new Lattice(dimension, n, periodic);
+    }
+
+    /**
+     * number of axes
+     * @return
+     */
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * number of sites along each axis
+     * @return
+     */
+    public int side() {
+        return side;
+    }
+
+    /**
+     * number of sites
+     * @return
+     */
+    public int sites() {
+        return sites;
+    }
+
+    /**
+     * number of bonds between distinct neighbouring sites
+     * @return
+     * @throws java.lang.IllegalStateException if there are more than Integer.MAX_VALUE
+     */
+    public int bonds() {
+        if (bondCount > Integer.MAX_VALUE)
+            throw new java.lang.IllegalStateException("too many bonds");
+        return (int) bondCount;
+    }
+
+    /**
+     * neighbour slots per site
+     * @return
+     */
+    public int degree() {
+        return degree;
+    }
+
+    /**
+     * k-th neighbour of site, or site itself where the boundary cuts it off:
+     * slot 2a steps down axis a, slot 2a+1 steps up it
+     * @param site
+     * @param k
+     * @return
+     */
+    public int neighbor(int site, int k) {
+        return site + offset[(boundary[site] & 0xff) * degree + k];
+    }
+
+    /**
+     * one end of bond
+     * @param bond
+     * @return
+     */
+    public int bondFrom(int bond) {
+        return bondTable()[2*bond];
+    }
+
+    /**
+     * other end of bond
+     * @param bond
+     * @return
+     */
+    public int bondTo(int bond) {
+        return bondTable()[2*bond + 1];
+    }
+
+    // bond ends, listed by site and then axis; only bond percolation needs
+    // them, so they are built the first time a bond is asked for
+    private int[] bondTable() {
+        int[] table = bonds;
+        if (table != null) return table;
+
+        synchronized (this) {
+            if (bonds != null) return bonds;
+
+            if (bondCount > Integer.MAX_VALUE / 2)
+                throw new java.lang.IllegalStateException("too many bonds");
+            table = new int[2 * (int) bondCount];
+            int count = 0;
+            for (int site = 0; site < sites; site++) {
+                for (int a = 0; a < dimension; a++) {
+                    int up = neighbor(site, 2*a + 1);
+                    if (up != site) {
+                        table[count++] = site;
+                        table[count++] = up;
+                    }
+                }
+            }
+            bonds = table;
+            return table;
+        }
+    }
+
+    /**
+     * is site in the first slice along the spanning axis?
+     * @param site
+     * @return
+     */
+    public boolean isTop(int site) {
+        return site < layer;
+    }
+
+    /**
+     * is site in the last slice along the spanning axis?
+     * @param site
+     * @return
+     */
+    public boolean isBottom(int site) {
+        return site >= sites - layer;
+    }
+
+}
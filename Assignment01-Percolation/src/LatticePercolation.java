@@ -0,0 +1,197 @@
+public class LatticePercolation {
+
+    /**
+     * what gets opened: sites (with all bonds present) or bonds (with all sites present)
+     */
+    public enum Kind { SITE, BOND }
+
+    private final Lattice lattice;
+    private final Kind kind;
+    private final GridUnionFind grid;
+    private final long[] open;    // one bit per site or per bond, by kind
+    private int openCount;
+    private boolean percolates;
+
+    /**
+     * create a lattice with every site (SITE) or every bond (BOND) blocked
+     * @param lattice
+     * @param kind
+     * @throws java.lang.IllegalArgumentException
+     */
+    public LatticePercolation(Lattice lattice, Kind kind) {
+        if (lattice == null || kind == null)
+            throw new java.lang.IllegalArgumentException();
+
+        this.lattice = lattice;
+        this.kind = kind;
+        grid = new GridUnionFind(lattice.sites());
+
+        if (kind == Kind.SITE) {
+            open = new long[(lattice.sites() + 63) >>> 6];
+        }
+        else {
+            open = new long[(lattice.bonds() + 63) >>> 6];
+            // every site is present, so the boundary slices are flagged up front
+            for (int site = 0; site < lattice.sites(); site++) {
+                if (lattice.isTop(site))grid.mark(site, GridUnionFind.TOP);
+                if (lattice.isBottom(site))grid.mark(site, GridUnionFind.BOTTOM);
+                if (grid.flags(site) == (GridUnionFind.TOP | GridUnionFind.BOTTOM))
+                    percolates = true;
+            }
+        }
+    }
+
+    /**
+     * open site if it is not open already (SITE lattices only)
+     * @param site
+     * @throws java.lang.IllegalArgumentException
+     * @throws java.lang.UnsupportedOperationException for a BOND lattice
+     */
+    public void openSite(int site) {
+        if (kind != Kind.SITE)
+            throw new java.lang.UnsupportedOperationException();
+        if (site < 0 || site >= lattice.sites())
+            throw new java.lang.IllegalArgumentException();
+
+        if (!isSet(site)) {
+
+            set(site);
+            openCount++;
+
+            if (lattice.isTop(site))grid.mark(site, GridUnionFind.TOP);
+            if (lattice.isBottom(site))grid.mark(site, GridUnionFind.BOTTOM);
+
+            // cut-off neighbours are the site itself, so no boundary branches here
+            for (int k = 0; k < lattice.degree(); k++) {
+                int neighbor = lattice.neighbor(site, k);
+                if (isSet(neighbor))
+                    grid.union(site, neighbor);
+            }
+
+            if (grid.flags(site) == (GridUnionFind.TOP | GridUnionFind.BOTTOM))
+                percolates = true;
+
+        }
+        else if (PercolationMetrics.ENABLED) grid.metrics.redundantOpens++;
+    }
+
+    /**
+     * open bond if it is not open already (BOND lattices only)
+     * @param bond
+     * @throws java.lang.IllegalArgumentException
+     * @throws java.lang.UnsupportedOperationException for a SITE lattice
+     */
+    public void openBond(int bond) {
+        if (kind != Kind.BOND)
+            throw new java.lang.UnsupportedOperationException();
+        if (bond < 0 || bond >= lattice.bonds())
+            throw new java.lang.IllegalArgumentException();
+
+        if (!isSet(bond)) {
+
+            set(bond);
+            openCount++;
+
+            int root = grid.union(lattice.bondFrom(bond), lattice.bondTo(bond));
+            if (grid.flags(root) == (GridUnionFind.TOP | GridUnionFind.BOTTOM))
+                percolates = true;
+
+        }
+        else if (PercolationMetrics.ENABLED) grid.metrics.redundantOpens++;
+    }
+
+    /**
+     * open the i-th element of this lattice's kind: a site or a bond
+     * @param i
+     * @throws java.lang.IllegalArgumentException
+     */
+    public void open(int i) {
+        if (kind == Kind.SITE) openSite(i);
+        else openBond(i);
+    }
+
+    /**
+     * is site open? (always true on a BOND lattice)
+     * @param site
+     * @return
+     * @throws java.lang.IllegalArgumentException
+     */
+    public boolean isOpen(int site) {
+        if (site < 0 || site >= lattice.sites())
+            throw new java.lang.IllegalArgumentException();
+
+        return kind == Kind.BOND || isSet(site);
+    }
+
+    /**
+     * is site connected to the top slice through open sites and bonds?
+     * @param site
+     * @return
+     * @throws java.lang.IllegalArgumentException
+     */
+    public boolean isFull(int site) {
+        if (PercolationMetrics.ENABLED) grid.metrics.fullQueries++;
+        return isOpen(site) && (grid.flags(site) & GridUnionFind.TOP) != 0;
+    }
+
+    /**
+     * number of open sites (SITE) or open bonds (BOND)
+     * @return
+     */
+    public int numberOfOpen() {
+        return openCount;
+    }
+
+    /**
+     * number of sites (SITE) or bonds (BOND) that can be opened
+     * @return
+     */
+    public int capacity() {
+        return kind == Kind.SITE ? lattice.sites() : lattice.bonds();
+    }
+
+    /**
+     * does the system percolate along the spanning axis?
+     * @return
+     */
+    public boolean percolates() {
+        if (PercolationMetrics.ENABLED) grid.metrics.percolatesQueries++;
+        return percolates;
+    }
+
+    /**
+     * test client (optional)
+     * @param args
+     */
+    public static void main(String[] args) {
+        LatticePercolation p = new LatticePercolation(Lattice.cubic(3, false), Kind.SITE);
+        if (!p.percolates())System.out.println("not percolate");
+        p.open(0);p.open(9);p.open(18);
+        if (p.percolates())System.out.println("percolate");
+
+        LatticePercolation b = new LatticePercolation(Lattice.square(4, true), Kind.BOND);
+        System.out.println(b.capacity() + " bonds");
+    }
+
+    /**
+     * fold this grid's counters since the last flush into the PercolationMetrics
+     * totals; does nothing unless metrics are enabled
+     */
+    public void flushMetrics() {
+        if (PercolationMetrics.ENABLED) PercolationMetrics.add(grid.metrics);
+    }
+
+    // counters of the union-find underneath, null unless metrics are enabled
+    PercolationMetrics.Counters metrics() {
+        return grid.metrics;
+    }
+
+    private boolean isSet(int i) {
+        return (open[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private void set(int i) {
+        open[i >>> 6] |= 1L << i;
+    }
+
+}
@@ -0,0 +1,183 @@
+import java.util.SplittableRandom;
+
+public class NewmanZiff {
+
+    private final int sites;
+    private final double[] spanning;    // per occupation m: fraction of trials spanning with m sites open
+    private final double[] largest;     // per m: mean size of the largest cluster
+    private final double[] meanSize;    // per m: mean size of the cluster holding a random open site
+
+    /**
+     * run trials Newman-Ziff sweeps on an n-by-n grid: each opens every site
+     * in random order and records the observables after every single opening
+     * @param n
+     * @param trials
+     * @param seed
+     * @throws java.lang.IllegalArgumentException
+     */
+    public NewmanZiff(int n, int trials, long seed) {
+        this(Lattice.square(n, false), trials, seed);
+    }
+
+    /**
+     * same as above for site percolation on a general lattice, spanning along
+     * its first axis; trial i draws from the i-th stream split off seed
+     * @param lattice
+     * @param trials
+     * @param seed
+     * @throws java.lang.IllegalArgumentException
+     */
+    public NewmanZiff(Lattice lattice, int trials, long seed) {
+        if (lattice == null || trials <= 0)
+            throw new java.lang.IllegalArgumentException();
+
+        sites = lattice.sites();
+        spanning = new double[sites + 1];
+        largest = new double[sites + 1];
+        meanSize = new double[sites + 1];
+
+        SplittableRandom root = new SplittableRandom(seed);
+        for (int t = 0; t < trials; t++)
+            sweep(lattice, root.split());
+
+        // spanning holds first-spanning counts so far; once spanning, always spanning
+        double cumulative = 0;
+        for (int m = 0; m <= sites; m++) {
+            cumulative += spanning[m];
+            spanning[m] = cumulative / trials;
+            largest[m] /= trials;
+            meanSize[m] /= trials;
+        }
+    }
+
+    // one sweep: open all sites in a lazily shuffled order, tracking the
+    // largest component size and the sum of squared sizes
+    private void sweep(Lattice lattice, SplittableRandom random) {
+        GridUnionFind grid = new GridUnionFind(sites);
+        long[] open = new long[(sites + 63) >>> 6];
+        int[] order = new int[sites];
+        for (int i = 0; i < sites; i++)
+            order[i] = i;
+
+        int maxSize = 0;
+        long sumOfSquares = 0;
+        boolean spans = false;
+
+        for (int m = 1; m <= sites; m++) {
+            int j = m - 1 + random.nextInt(sites - m + 1);
+            int site = order[j];
+            order[j] = order[m - 1];
+            order[m - 1] = site;
+
+            open[site >>> 6] |= 1L << site;
+            sumOfSquares += 1;
+            if (lattice.isTop(site))grid.mark(site, GridUnionFind.TOP);
+            if (lattice.isBottom(site))grid.mark(site, GridUnionFind.BOTTOM);
+
+            int root = site;
+            for (int k = 0; k < lattice.degree(); k++) {
+                int neighbor = lattice.neighbor(site, k);
+                if ((open[neighbor >>> 6] & (1L << neighbor)) == 0) continue;
+
+                int other = grid.find(neighbor);
+                if (other == root) continue;
+                sumOfSquares += 2L * grid.sizeOfRoot(root) * grid.sizeOfRoot(other);
+                root = grid.unionRoots(root, other);
+            }
+
+            maxSize = Math.max(maxSize, grid.sizeOfRoot(root));
+            if (!spans && grid.flags(root) == (GridUnionFind.TOP | GridUnionFind.BOTTOM)) {
+                spans = true;
+                spanning[m]++;
+            }
+            largest[m] += maxSize;
+            meanSize[m] += sumOfSquares / (double) m;
+        }
+    }
+
+    /**
+     * probability that the system percolates when each site is open with probability p
+     * @param p
+     * @return
+     * @throws java.lang.IllegalArgumentException
+     */
+    public double spanningProbability(double p) {
+        return convolve(spanning, p);
+    }
+
+    /**
+     * expected fraction of all sites in the largest cluster at open probability p
+     * @param p
+     * @return
+     * @throws java.lang.IllegalArgumentException
+     */
+    public double largestClusterFraction(double p) {
+        return convolve(largest, p) / sites;
+    }
+
+    /**
+     * expected size of the cluster containing a random open site at open probability p
+     * @param p
+     * @return
+     * @throws java.lang.IllegalArgumentException
+     */
+    public double meanClusterSize(double p) {
+        return convolve(meanSize, p);
+    }
+
+    /**
+     * fraction of trials that percolated with exactly m sites open
+     * @param m
+     * @return
+     */
+    public double spanningAtOccupation(int m) {
+        if (m < 0 || m > sites)
+            throw new java.lang.IllegalArgumentException();
+        return spanning[m];
+    }
+
+    // sum over m of Binomial(sites, p) weight of m times q[m]; the weights are
+    // built outwards from the mode by their ratio and dropped once negligible
+    private double convolve(double[] q, double p) {
+        if (!(p >= 0 && p <= 1))
+            throw new java.lang.IllegalArgumentException();
+        if (p == 0) return q[0];
+        if (p == 1) return q[sites];
+
+        int mode = (int) Math.min(sites, Math.floor((sites + 1) * p));
+        double ratio = p / (1 - p);
+        double total = 1, sum = q[mode];
+
+        double w = 1;
+        for (int m = mode; m < sites && w > 1e-16 * total; m++) {
+            w *= ratio * (sites - m) / (m + 1);
+            total += w;
+            sum += w * q[m + 1];
+        }
+        w = 1;
+        for (int m = mode; m > 0 && w > 1e-16 * total; m--) {
+            w *= m / (ratio * (sites - m + 1));
+            total += w;
+            sum += w * q[m - 1];
+        }
+        return sum / total;
+    }
+
+    /**
+     * test client: spanning probability, largest cluster and mean cluster size
+     * across p from a single set of sweeps
+     * @param args
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int trials = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        NewmanZiff nz = new NewmanZiff(n, trials, 1);
+        for (int i = 50; i <= 70; i++) {
+            double p = i / 100.0;
+            System.out.printf("%.2f %.4f %.4f %.2f%n", p, nz.spanningProbability(p),
+                    nz.largestClusterFraction(p), nz.meanClusterSize(p));
+        }
+    }
+
+}
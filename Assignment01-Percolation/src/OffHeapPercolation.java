@@ -0,0 +1,315 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class OffHeapPercolation implements AutoCloseable {
+
+    private static final int CHUNK_SHIFT = 28;     // 2^28 sites (1 GiB) per buffer
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+    private static final int HEADER_BYTES = 16;    // int n, int state, long openSites
+    private static final int PERCOLATES = 1;       // state bits
+    private static final int DIRTY = 2;            // sites changed since the last checkpoint
+
+    // one int per site, so a zero-filled buffer or fresh file is an all-blocked grid:
+    //   0: blocked
+    // > 0: open, link to parent (value - 1)
+    // < 0: open root, ~value holds (rank << 2 | flags), flags as in GridUnionFind
+    private final IntBuffer[] sites;
+    private final ByteBuffer[] chunks;
+    private final ByteBuffer header;       // null unless backed by a file
+    private final FileChannel channel;     // null unless backed by a file
+    private final int size;
+    private int openSites;
+    private boolean percolates;
+    private boolean dirty;
+
+    /**
+     * create n-by-n grid, with all sites blocked, in direct (off-heap) buffers;
+     * bounded by -XX:MaxDirectMemorySize rather than the heap
+     * @param n
+     * @throws java.lang.IllegalArgumentException
+     */
+    public OffHeapPercolation(int n) {
+        if (n <= 0 || (long) n*n > Integer.MAX_VALUE)
+            throw new java.lang.IllegalArgumentException();
+
+        size = n;
+        header = null;
+        channel = null;
+
+        int count = chunkCount(n);
+        chunks = new ByteBuffer[count];
+        sites = new IntBuffer[count];
+        for (int k = 0; k < count; k++) {
+            chunks[k] = ByteBuffer.allocateDirect(chunkBytes(n, k)).order(ByteOrder.LITTLE_ENDIAN);
+            sites[k] = chunks[k].asIntBuffer();
+        }
+    }
+
+    /**
+     * create n-by-n grid backed by a memory-mapped file; if the file already
+     * holds an n-by-n grid, resume from it. Sites reach the file as they are
+     * opened but the counters only at a checkpoint, so a file left dirty by an
+     * instance that never checkpointed has its counters recomputed from the sites
+     * @param n
+     * @param file
+     * @throws java.lang.IllegalArgumentException if file holds a grid of another size
+     * @throws java.io.UncheckedIOException
+     */
+    public OffHeapPercolation(int n, Path file) {
+        if (n <= 0 || (long) n*n > Integer.MAX_VALUE || file == null)
+            throw new java.lang.IllegalArgumentException();
+
+        size = n;
+        int count = chunkCount(n);
+        chunks = new ByteBuffer[count];
+        sites = new IntBuffer[count];
+
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // release the channel if mapping fails or the file holds another grid
+        try {
+            boolean resume = channel.size() > 0;
+
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (resume && header.getInt(0) != n)
+                throw new java.lang.IllegalArgumentException("checkpoint is not " + n + "-by-" + n);
+            if (!resume) header.putInt(0, n);
+
+            long position = HEADER_BYTES;
+            for (int k = 0; k < count; k++) {
+                int bytes = chunkBytes(n, k);
+                chunks[k] = channel.map(FileChannel.MapMode.READ_WRITE, position, bytes)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                sites[k] = chunks[k].asIntBuffer();
+                position += bytes;
+            }
+
+            if (resume && (header.getInt(4) & DIRTY) != 0) {
+                recount();
+                dirty = true;
+                checkpoint();
+            }
+            else if (resume) {
+                percolates = (header.getInt(4) & PERCOLATES) != 0;
+                openSites = (int) header.getLong(8);
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                channel.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            if (e instanceof IOException) throw new UncheckedIOException((IOException) e);
+            throw (RuntimeException) e;
+        }
+    }
+
+    /**
+     * open site (row, col) if it is not open already
+     * @param row
+     * @param col
+     * @throws java.lang.IllegalArgumentException
+     */
+    public void open(int row, int col) {
+        if (!inBoundary(row,col))
+            throw new java.lang.IllegalArgumentException();
+
+        int coord = (row-1)*size+col-1;
+
+        if (get(coord) == 0) {
+
+            if (!dirty && header != null) {
+                header.putInt(4, header.getInt(4) | DIRTY);
+                dirty = true;
+            }
+
+            int flags = 0;
+            if (row == 1)flags |= GridUnionFind.TOP;
+            if (row == size)flags |= GridUnionFind.BOTTOM;
+            set(coord, ~flags);
+            openSites++;
+
+            if (row > 1 && get(coord-size) != 0)union(coord, coord-size);
+            if (row < size && get(coord+size) != 0)union(coord, coord+size);
+            if (col > 1 && get(coord-1) != 0)union(coord, coord-1);
+            if (col < size && get(coord+1) != 0)union(coord, coord+1);
+
+            if ((~get(find(coord)) & 3) == (GridUnionFind.TOP | GridUnionFind.BOTTOM))
+                percolates = true;
+
+        }
+
+    }
+
+    /**
+     * is site (row, col) open?
+     * @param row
+     * @param col
+     * @return
+     * @throws java.lang.IllegalArgumentException
+     */
+    public boolean isOpen(int row, int col) {
+        if (!inBoundary(row,col))
+            throw new java.lang.IllegalArgumentException();
+
+        return get((row-1)*size+col-1) != 0;
+    }
+
+    /**
+     * is site (row, col) full?
+     * @param row
+     * @param col
+     * @return
+     * @throws java.lang.IllegalArgumentException
+     */
+    public boolean isFull(int row, int col) {
+        if (!inBoundary(row,col))
+            throw new java.lang.IllegalArgumentException();
+
+        int coord = (row-1)*size+col-1;
+        return get(coord) != 0 && (~get(find(coord)) & GridUnionFind.TOP) != 0;
+    }
+
+    /**
+     * number of open sites
+     * @return
+     */
+    public int numberOfOpenSites() {
+        return openSites;
+    }
+
+    /**
+     * does the system percolate?
+     * @return
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    /**
+     * write the grid back to its file, so a later instance can resume from it;
+     * does nothing for a grid in direct buffers
+     */
+    public void checkpoint() {
+        if (header == null || !dirty) return;
+
+        for (ByteBuffer chunk : chunks)
+            ((MappedByteBuffer) chunk).force();
+        header.putInt(4, percolates ? PERCOLATES : 0);
+        header.putLong(8, openSites);
+        ((MappedByteBuffer) header).force();
+        dirty = false;
+    }
+
+    /**
+     * checkpoint and release the backing file, if any
+     * @throws java.io.UncheckedIOException
+     */
+    public void close() {
+        if (channel == null) return;
+
+        checkpoint();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * test client (optional)
+     * @param args
+     */
+    public static void main(String[] args) {
+        OffHeapPercolation p = new OffHeapPercolation(4);
+        if (!p.percolates())System.out.println("not percolate");
+        p.open(1, 1);
+        if (p.isOpen(1, 1))System.out.println("1,1 is open");
+        if (p.isFull(1, 1))System.out.println("1,1 is full.");
+        p.open(2,1);p.open(3,1);p.open(4,1);
+        if (p.percolates())System.out.println("percolate");
+    }
+
+    // counters from the sites themselves, for a file that was never checkpointed
+    private void recount() {
+        openSites = 0;
+        percolates = false;
+        for (int coord = 0; coord < size*size; coord++) {
+            int value = get(coord);
+            if (value == 0) continue;
+            openSites++;
+            if (value < 0 && (~value & 3) == (GridUnionFind.TOP | GridUnionFind.BOTTOM))
+                percolates = true;
+        }
+    }
+
+    private int find(int p) {
+        int q;
+        while ((q = get(p)) > 0) {
+            int r = get(q-1);
+            if (r < 0) return q-1;
+            set(p, r);              // halve: point p at its grandparent
+            p = r-1;
+        }
+        return p;
+    }
+
+    private void union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) return;
+
+        int infoP = ~get(rootP);
+        int infoQ = ~get(rootQ);
+        int rankP = infoP >>> 2;
+        int rankQ = infoQ >>> 2;
+        int flags = (infoP | infoQ) & 3;
+
+        if (rankP < rankQ) {
+            set(rootP, rootQ+1);
+            set(rootQ, ~(rankQ << 2 | flags));
+        }
+        else {
+            set(rootQ, rootP+1);
+            set(rootP, ~((rankP == rankQ ? rankP + 1 : rankP) << 2 | flags));
+        }
+    }
+
+    private int get(int coord) {
+        return sites[coord >>> CHUNK_SHIFT].get(coord & CHUNK_MASK);
+    }
+
+    private void set(int coord, int value) {
+        sites[coord >>> CHUNK_SHIFT].put(coord & CHUNK_MASK, value);
+    }
+
+    private static int chunkCount(int n) {
+        return (int) (((long) n*n + CHUNK_MASK) >>> CHUNK_SHIFT);
+    }
+
+    private static int chunkBytes(int n, int k) {
+        long remaining = (long) n*n - ((long) k << CHUNK_SHIFT);
+        return (int) Math.min(remaining, 1L << CHUNK_SHIFT) * 4;
+    }
+
+    private boolean inBoundary(int row, int col) {
+        if (row<1 || row>size || col<1 || col>size)
+            return false;
+        else
+            return true;
+    }
+
+}
@@ -1,10 +1,13 @@
-import edu.princeton.cs.algs4.WeightedQuickUnionUF;
-
 public class Percolation {
 
-    private final WeightedQuickUnionUF grid;
-    private boolean[] open;
+    private final GridUnionFind grid;
+    private final long[] open;    // one bit per site, 64 sites per word
     private final int size;
+    private int openSites;
+    private boolean percolates;
+    private int clusters;           // components of open sites
+    private int largestCluster;
+    private int[] histogram = new int[2];   // histogram[s]: clusters of s sites; grows with largestCluster
 
     /**
      * create n-by-n grid, with all sites blocked
@@ -16,12 +19,52 @@ public class Percolation {
             throw new java.lang.IllegalArgumentException();
 
         size = n;
-        grid = new WeightedQuickUnionUF(n*n+2);
+        // no virtual top/bottom nodes: each root carries TOP/BOTTOM flags instead,
+        // so a site is full only if its own component touches the top (no backwash)
+        grid = new GridUnionFind(n*n);
+        open = new long[(n*n + 63) >>> 6];
+    }
+
+    /**
+     * create n-by-n grid from a row-major bitmap of open sites, where bit
+     * (row-1)*n+col-1 of bitmap (64 bits per word) is set if (row, col) is open;
+     * components are labelled in one scanline pass joining each site to its
+     * left and upper neighbours
+     * @param n
+     * @param bitmap
+     * @throws java.lang.IllegalArgumentException
+     */
+    public Percolation(int n, long[] bitmap) {
+        this(n);
+        if (bitmap == null || bitmap.length != open.length)
+            throw new java.lang.IllegalArgumentException();
+
+        System.arraycopy(bitmap, 0, open, 0, open.length);
+        int tail = n*n & 63;
+        if (tail != 0)
+            open[open.length-1] &= (1L << tail) - 1;
+        for (long word : open)
+            openSites += Long.bitCount(word);
+        addSingletons(openSites);
+
+        int coord = 0;
+        for (int row = 1; row <= n; row++) {
+            for (int col = 1; col <= n; col++, coord++) {
+                if (!isOpen(coord)) continue;
+
+                if (col > 1 && isOpen(coord-1))join(coord, coord-1);
+                if (row > 1 && isOpen(coord-n))join(coord, coord-n);
+                if (row == 1)grid.mark(coord, GridUnionFind.TOP);
+            }
+        }
 
-        open = new boolean[n*n+2];
-        for (int i = 0;i < n*n+2;i++)
-            open[i] = false;
-        open[0] = open[n*n+1] = true;
+        for (coord = (n-1)*n; coord < n*n; coord++) {
+            if (isOpen(coord)) {
+                grid.mark(coord, GridUnionFind.BOTTOM);
+                if (grid.flags(coord) == (GridUnionFind.TOP | GridUnionFind.BOTTOM))
+                    percolates = true;
+            }
+        }
     }
 
     /**
@@ -34,28 +77,82 @@ public class Percolation {
         if (!inBoundary(row,col))
             throw new java.lang.IllegalArgumentException();
 
-        int coord = (row-1)*size+col;
+        int coord = (row-1)*size+col-1;
 
-        if (!open[coord]) {
+        if (!isOpen(coord)) {
 
-            open[coord] = true;
+            setOpen(coord);
+            openSites++;
+            addSingletons(1);
+
+            if (row == 1)grid.mark(coord, GridUnionFind.TOP);
+            if (row == size)grid.mark(coord, GridUnionFind.BOTTOM);
 
             for (int i = -1;i <= 1;i = i+2) {
 
-                if (inBoundary(row+i,col) && open[coord+i*size])
-                    grid.union(coord, coord+i*size);
-                if (inBoundary(row,col+i) && open[coord+i])
-                    grid.union(coord, coord+i);
+                if (inBoundary(row+i,col) && isOpen(coord+i*size))
+                    join(coord, coord+i*size);
+                if (inBoundary(row,col+i) && isOpen(coord+i))
+                    join(coord, coord+i);
 
             }
 
-            if (row == 1)grid.union(0, coord);
-            if (row == size)grid.union(coord, size*size+1);
+            if (grid.flags(coord) == (GridUnionFind.TOP | GridUnionFind.BOTTOM))
+                percolates = true;
 
         }
+        else if (PercolationMetrics.ENABLED) grid.metrics.redundantOpens++;
 
     }
 
+    /**
+     * open every site (rows[i], cols[i]); all pairs are checked before any
+     * site is opened, then each new site is joined to its open neighbours
+     * @param rows
+     * @param cols
+     * @throws java.lang.IllegalArgumentException
+     */
+    public void open(int[] rows, int[] cols) {
+        if (rows == null || cols == null || rows.length != cols.length)
+            throw new java.lang.IllegalArgumentException();
+        for (int i = 0; i < rows.length; i++) {
+            if (!inBoundary(rows[i],cols[i]))
+                throw new java.lang.IllegalArgumentException();
+        }
+
+        // set every bit first, so each new site meets all its open neighbours at once
+        int[] opened = new int[rows.length];
+        int count = 0;
+        for (int i = 0; i < rows.length; i++) {
+            int coord = (rows[i]-1)*size+cols[i]-1;
+            if (!isOpen(coord)) {
+                setOpen(coord);
+                opened[count++] = coord;
+            }
+            else if (PercolationMetrics.ENABLED) grid.metrics.redundantOpens++;
+        }
+        openSites += count;
+        addSingletons(count);
+
+        for (int i = 0; i < count; i++) {
+            int coord = opened[i];
+            int row = coord / size + 1, col = coord % size + 1;
+
+            if (row == 1)grid.mark(coord, GridUnionFind.TOP);
+            if (row == size)grid.mark(coord, GridUnionFind.BOTTOM);
+
+            if (row > 1 && isOpen(coord-size))join(coord, coord-size);
+            if (row < size && isOpen(coord+size))join(coord, coord+size);
+            if (col > 1 && isOpen(coord-1))join(coord, coord-1);
+            if (col < size && isOpen(coord+1))join(coord, coord+1);
+        }
+
+        for (int i = 0; i < count && !percolates; i++) {
+            if (grid.flags(opened[i]) == (GridUnionFind.TOP | GridUnionFind.BOTTOM))
+                percolates = true;
+        }
+    }
+
     /**
      * is site (row, col) open?
      * @param row
@@ -67,10 +164,7 @@ public class Percolation {
         if (!inBoundary(row,col))
             throw new java.lang.IllegalArgumentException();
 
-        if (open[(row-1)*size+col] == true)
-            return true;
-        else
-            return false;
+        return isOpen((row-1)*size+col-1);
     }
 
     /**
@@ -84,10 +178,9 @@ public class Percolation {
         if (!inBoundary(row,col))
             throw new java.lang.IllegalArgumentException();
 
-        if (grid.connected(0, (row-1)*size+col))
-            return true;
-        else
-            return false;
+        if (PercolationMetrics.ENABLED) grid.metrics.fullQueries++;
+        int coord = (row-1)*size+col-1;
+        return isOpen(coord) && (grid.flags(coord) & GridUnionFind.TOP) != 0;
     }
 
     /**
@@ -95,14 +188,64 @@ public class Percolation {
      * @return
      */
     public int numberOfOpenSites() {
-        int count = 0;
+        return openSites;
+    }
 
-        for (int i = 1;i < size*size+1;i++) {
-            if (open[i])
-                count++;
-        }
+    /**
+     * number of clusters (components of open sites)
+     * @return
+     */
+    public int numberOfClusters() {
+        return clusters;
+    }
 
-        return count;
+    /**
+     * number of sites in the largest cluster, 0 if no site is open
+     * @return
+     */
+    public int largestCluster() {
+        return largestCluster;
+    }
+
+    /**
+     * number of clusters of exactly s sites
+     * @param s
+     * @return
+     */
+    public int clusterCount(int s) {
+        return s > 0 && s < histogram.length ? histogram[s] : 0;
+    }
+
+    /**
+     * cluster-size histogram: entry s is the number of clusters of s sites,
+     * for s up to largestCluster()
+     * @return
+     */
+    public int[] clusterSizeHistogram() {
+        return java.util.Arrays.copyOf(histogram, largestCluster + 1);
+    }
+
+    /**
+     * number of sites in the cluster containing site (row, col), 0 if it is blocked
+     * @param row
+     * @param col
+     * @return
+     * @throws java.lang.IllegalArgumentException
+     */
+    public int clusterSize(int row, int col) {
+        if (!inBoundary(row,col))
+            throw new java.lang.IllegalArgumentException();
+
+        int coord = (row-1)*size+col-1;
+        return isOpen(coord) ? grid.size(coord) : 0;
+    }
+
+    /**
+     * row-major bitmap of open sites, in the layout taken by Percolation(int, long[])
+     * @return
+     */
+    public long[] openBitmap() {
+        return open.clone();
     }
 
     /**
@@ -110,10 +253,8 @@ public class Percolation {
      * @return
      */
     public boolean percolates() {
-        if (grid.connected(0, size*size+1))
-            return true;
-        else
-            return false;
+        if (PercolationMetrics.ENABLED) grid.metrics.percolatesQueries++;
+        return percolates;
     }
 
     /**
@@ -130,6 +271,54 @@ public class Percolation {
         if (p.isFull(1, 1))System.out.println("1,1 is full.");
         p.open(2,1);p.open(3,1);p.open(4,1);
         if (p.percolates())System.out.println("percolate");
+        p.open(4,3);
+        if (!p.isFull(4, 3))System.out.println("4,3 is not full (no backwash)");
+    }
+
+    /**
+     * fold this grid's counters since the last flush into the PercolationMetrics
+     * totals; does nothing unless metrics are enabled
+     */
+    public void flushMetrics() {
+        if (PercolationMetrics.ENABLED) PercolationMetrics.add(grid.metrics);
+    }
+
+    // counters of the union-find underneath, null unless metrics are enabled
+    PercolationMetrics.Counters metrics() {
+        return grid.metrics;
+    }
+
+    // count newly opened sites as clusters of one
+    private void addSingletons(int count) {
+        if (count == 0) return;
+        clusters += count;
+        histogram[1] += count;
+        largestCluster = Math.max(largestCluster, 1);
+    }
+
+    // union two open sites, keeping the cluster statistics current
+    private void join(int p, int q) {
+        int rootP = grid.find(p);
+        int rootQ = grid.find(q);
+        if (rootP == rootQ) return;
+
+        int sizeP = grid.sizeOfRoot(rootP), sizeQ = grid.sizeOfRoot(rootQ), merged = sizeP + sizeQ;
+        grid.unionRoots(rootP, rootQ);
+        clusters--;
+        histogram[sizeP]--;
+        histogram[sizeQ]--;
+        if (merged >= histogram.length)
+            histogram = java.util.Arrays.copyOf(histogram, Math.max(merged + 1, 2 * histogram.length));
+        histogram[merged]++;
+        largestCluster = Math.max(largestCluster, merged);
+    }
+
+    private boolean isOpen(int coord) {
+        return (open[coord >>> 6] & (1L << coord)) != 0;
+    }
+
+    private void setOpen(int coord) {
+        open[coord >>> 6] |= 1L << coord;
     }
 
     private boolean inBoundary(int row, int col) {
@@ -139,4 +328,4 @@ public class Percolation {
             return true;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,276 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+public final class PercolationMetrics {
+
+    /**
+     * on with -Dpercolation.metrics=true; off by default, and then every hook
+     * is a branch on this constant that the JIT folds away
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("percolation.metrics");
+
+    private static final LongAdder unions = new LongAdder();
+    private static final LongAdder finds = new LongAdder();
+    private static final LongAdder findSteps = new LongAdder();
+    private static final LongAccumulator maxFindSteps = new LongAccumulator(Math::max, 0);
+    private static final LongAdder redundantOpens = new LongAdder();
+    private static final LongAdder fullQueries = new LongAdder();
+    private static final LongAdder percolatesQueries = new LongAdder();
+    private static final LongAdder trials = new LongAdder();
+    private static final LongAdder trialNanos = new LongAdder();
+    private static final LongAdder openSites = new LongAdder();
+
+    static {
+        if (ENABLED) FlightRecorder.addPeriodicEvent(TotalsEvent.class, PercolationMetrics::emitTotals);
+    }
+
+    private PercolationMetrics() { }
+
+    /**
+     * plain counters owned by one union-find and the grid around it, so the
+     * hot path never touches shared memory; folded into the totals per trial
+     * or by the grid's flushMetrics()
+     */
+    static final class Counters
+    {
+        long unions, finds, findSteps, redundantOpens, fullQueries, percolatesQueries;
+        int maxFindSteps;
+
+        void find(int steps) {
+            finds++;
+            findSteps += steps;
+            if (steps > maxFindSteps) maxFindSteps = steps;
+        }
+    }
+
+    /**
+     * fresh counters when enabled, null otherwise
+     */
+    static Counters counters() {
+        return ENABLED ? new Counters() : null;
+    }
+
+    /**
+     * fold counters into the totals and zero them
+     * @param counters
+     */
+    static void add(Counters counters) {
+        unions.add(counters.unions);
+        finds.add(counters.finds);
+        findSteps.add(counters.findSteps);
+        maxFindSteps.accumulate(counters.maxFindSteps);
+        redundantOpens.add(counters.redundantOpens);
+        fullQueries.add(counters.fullQueries);
+        percolatesQueries.add(counters.percolatesQueries);
+        counters.unions = counters.finds = counters.findSteps = 0;
+        counters.redundantOpens = counters.fullQueries = counters.percolatesQueries = 0;
+        counters.maxFindSteps = 0;
+    }
+
+    /**
+     * fold one finished trial into the totals and emit its JFR event
+     * @param startNanos System.nanoTime() when the trial began
+     * @param sites sites (or bonds) in the system
+     * @param opened number opened when it percolated
+     * @param counters the trial's counters
+     */
+    static void trial(long startNanos, int sites, int opened, Counters counters) {
+        long nanos = System.nanoTime() - startNanos;
+        trials.increment();
+        trialNanos.add(nanos);
+        openSites.add(opened);
+
+        TrialEvent event = new TrialEvent();
+        if (event.shouldCommit()) {
+            event.sites = sites;
+            event.opened = opened;
+            event.wallTime = nanos;
+            event.unions = counters.unions;
+            event.finds = counters.finds;
+            event.meanFindPath = counters.finds == 0 ? 0 : counters.findSteps / (double) counters.finds;
+            event.maxFindPath = counters.maxFindSteps;
+            event.redundantOpens = counters.redundantOpens;
+            event.fullQueries = counters.fullQueries;
+            event.percolatesQueries = counters.percolatesQueries;
+            event.commit();
+        }
+        add(counters);
+    }
+
+    /**
+     * number of unions that merged two components
+     * @return
+     */
+    public static long unions() {
+        return unions.sum();
+    }
+
+    /**
+     * number of finds
+     * @return
+     */
+    public static long finds() {
+        return finds.sum();
+    }
+
+    /**
+     * mean number of links followed per find, a proxy for tree depth
+     * @return
+     */
+    public static double meanFindPath() {
+        long count = finds.sum();
+        return count == 0 ? 0 : findSteps.sum() / (double) count;
+    }
+
+    /**
+     * longest path followed by any single find
+     * @return
+     */
+    public static long maxFindPath() {
+        return maxFindSteps.get();
+    }
+
+    /**
+     * number of open calls on a site that was already open
+     * @return
+     */
+    public static long redundantOpens() {
+        return redundantOpens.sum();
+    }
+
+    /**
+     * number of isFull queries
+     * @return
+     */
+    public static long fullQueries() {
+        return fullQueries.sum();
+    }
+
+    /**
+     * number of percolates queries
+     * @return
+     */
+    public static long percolatesQueries() {
+        return percolatesQueries.sum();
+    }
+
+    /**
+     * number of finished trials
+     * @return
+     */
+    public static long trials() {
+        return trials.sum();
+    }
+
+    /**
+     * total wall time spent in trials, summed over threads, in nanoseconds
+     * @return
+     */
+    public static long trialNanos() {
+        return trialNanos.sum();
+    }
+
+    /**
+     * sites opened per second of trial time
+     * @return
+     */
+    public static double openSitesPerSecond() {
+        long nanos = trialNanos.sum();
+        return nanos == 0 ? 0 : openSites.sum() * 1e9 / nanos;
+    }
+
+    /**
+     * zero all totals
+     */
+    public static void reset() {
+        unions.reset();
+        finds.reset();
+        findSteps.reset();
+        maxFindSteps.reset();
+        redundantOpens.reset();
+        fullQueries.reset();
+        percolatesQueries.reset();
+        trials.reset();
+        trialNanos.reset();
+        openSites.reset();
+    }
+
+    /**
+     * one-line summary of the totals
+     * @return
+     */
+    public static String report() {
+        return String.format("trials=%d wall=%.3fs open/s=%.0f unions=%d finds=%d findPath=%.3f maxFindPath=%d"
+                        + " redundantOpens=%d isFull=%d percolates=%d",
+                trials(), trialNanos() / 1e9, openSitesPerSecond(), unions(), finds(),
+                meanFindPath(), maxFindPath(), redundantOpens(), fullQueries(), percolatesQueries());
+    }
+
+    private static void emitTotals() {
+        TotalsEvent event = new TotalsEvent();
+        event.trials = trials();
+        event.openSitesPerSecond = openSitesPerSecond();
+        event.meanFindPath = meanFindPath();
+        event.maxFindPath = maxFindPath();
+        event.redundantOpens = redundantOpens();
+        event.commit();
+    }
+
+    @Name("percolation.Trial")
+    @Label("Percolation Trial")
+    @Category("Percolation")
+    @Description("One percolation trial, opened until it percolated")
+    @StackTrace(false)
+    static class TrialEvent extends Event
+    {
+        @Label("Sites") int sites;
+        @Label("Opened") int opened;
+        @Label("Wall Time") @Timespan(Timespan.NANOSECONDS) long wallTime;
+        @Label("Unions") long unions;
+        @Label("Finds") long finds;
+        @Label("Mean Find Path") double meanFindPath;
+        @Label("Max Find Path") int maxFindPath;
+        @Label("Redundant Opens") long redundantOpens;
+        @Label("isFull Queries") long fullQueries;
+        @Label("percolates Queries") long percolatesQueries;
+    }
+
+    @Name("percolation.Totals")
+    @Label("Percolation Totals")
+    @Category("Percolation")
+    @Period("1 s")
+    static class TotalsEvent extends Event
+    {
+        @Label("Trials") long trials;
+        @Label("Open Sites per Second") double openSitesPerSecond;
+        @Label("Mean Find Path") double meanFindPath;
+        @Label("Max Find Path") long maxFindPath;
+        @Label("Redundant Opens") long redundantOpens;
+    }
+
+    /**
+     * test client: run PercolationStats with metrics on and print the totals
+     * (java -Dpercolation.metrics=true PercolationMetrics n trials)
+     * @param args
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int trials = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        if (!ENABLED) System.out.println("metrics disabled; run with -Dpercolation.metrics=true");
+        PercolationStats stats = new PercolationStats(n, trials);
+        System.out.println("mean = " + stats.mean());
+        System.out.println(report());
+    }
+
+}
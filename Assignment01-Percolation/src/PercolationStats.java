@@ -1,11 +1,17 @@
 import edu.princeton.cs.algs4.StdRandom;
 import edu.princeton.cs.algs4.StdStats;
 
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
 public class PercolationStats {
 
     private final double[] threshold;
     private final int times;
     private static final double z = 1.96;
+    private static final int MIN_TRIALS = 30;   // before the normal half-width is trusted to stop a stream
 
     /**
      * perform trials independent experiments on an n-by-n grid
@@ -26,6 +32,7 @@ public class PercolationStats {
 
         for (int i = 0;i < trials;i++){
 
+            long start = PercolationMetrics.ENABLED ? System.nanoTime() : 0;
             percolation = new Percolation(n);
 
             while (!percolation.percolates()){
@@ -35,10 +42,310 @@ public class PercolationStats {
                 percolation.open(row,col);
             }
 
+            if (PercolationMetrics.ENABLED)
+                PercolationMetrics.trial(start, n*n, percolation.numberOfOpenSites(), percolation.metrics());
             threshold[i] = percolation.numberOfOpenSites()/(n*n*1.0);
         }
     }
 
+    /**
+     * how a trial picks the next site to open
+     */
+    public enum Sampling {
+        /** draw (row, col) uniformly, redrawing sites that are already open */
+        UNIFORM,
+        /** walk a random permutation of the sites, so every draw opens a new site */
+        PERMUTATION
+    }
+
+    /**
+     * perform trials independent experiments on an n-by-n grid in parallel,
+     * trial i drawing from its own stream split off a root SplittableRandom,
+     * so the thresholds depend only on seed and never on the thread count
+     * @param n
+     * @param trials
+     * @param seed
+     * @param pool
+     * @throws java.lang.IllegalArgumentException
+     */
+    public PercolationStats(int n, int trials, long seed, ForkJoinPool pool) {
+        this(n, trials, seed, pool, Sampling.UNIFORM);
+    }
+
+    /**
+     * same as above, choosing how each trial samples sites
+     * @param n
+     * @param trials
+     * @param seed
+     * @param pool
+     * @param sampling
+     * @throws java.lang.IllegalArgumentException
+     */
+    public PercolationStats(int n, int trials, long seed, ForkJoinPool pool, Sampling sampling) {
+
+        if (n <= 0 || trials <= 0 || pool == null || sampling == null)
+            throw new java.lang.IllegalArgumentException();
+
+        times = trials;
+        threshold = runTrials(trials, seed, pool, trialOf(n, sampling));
+    }
+
+    /**
+     * same as above on a pool with the given number of worker threads
+     * @param n
+     * @param trials
+     * @param seed
+     * @param threads
+     * @throws java.lang.IllegalArgumentException
+     */
+    public PercolationStats(int n, int trials, long seed, int threads) {
+        this(n, trials, seed, threads, Sampling.UNIFORM);
+    }
+
+    /**
+     * same as above, choosing how each trial samples sites
+     * @param n
+     * @param trials
+     * @param seed
+     * @param threads
+     * @param sampling
+     * @throws java.lang.IllegalArgumentException
+     */
+    public PercolationStats(int n, int trials, long seed, int threads, Sampling sampling) {
+
+        if (n <= 0 || trials <= 0 || threads <= 0 || sampling == null)
+            throw new java.lang.IllegalArgumentException();
+
+        times = trials;
+        threshold = runTrials(trials, seed, threads, trialOf(n, sampling));
+    }
+
+    /**
+     * perform trials independent experiments on a general lattice in parallel,
+     * each opening sites or bonds in random order until the lattice percolates
+     * along its spanning axis; thresholds are fractions of open sites or bonds
+     * and, as above, depend only on seed
+     * @param lattice
+     * @param kind
+     * @param trials
+     * @param seed
+     * @param threads
+     * @throws java.lang.IllegalArgumentException
+     */
+    public PercolationStats(Lattice lattice, LatticePercolation.Kind kind, int trials, long seed, int threads) {
+
+        if (lattice == null || kind == null || trials <= 0 || threads <= 0)
+            throw new java.lang.IllegalArgumentException();
+
+        times = trials;
+        threshold = runTrials(trials, seed, threads, random -> latticeTrial(lattice, kind, random));
+    }
+
+    /**
+     * run trials one after another on an n-by-n grid, folding each threshold
+     * into running statistics instead of keeping them, and handing those to
+     * listener after every trial; stops after maxTrials, or earlier once at least
+     * 30 trials have run and the 95% confidence half-width is at most halfWidth
+     * (pass 0 to never stop early). Trial i uses the same stream as in the
+     * parallel constructors with this seed, so a full run matches their
+     * statistics up to rounding
+     * @param n
+     * @param maxTrials
+     * @param halfWidth
+     * @param seed
+     * @param sampling
+     * @param listener may be null
+     * @return the statistics after the last trial run
+     * @throws java.lang.IllegalArgumentException
+     */
+    public static RunningStats stream(int n, int maxTrials, double halfWidth, long seed,
+                                      Sampling sampling, Consumer<RunningStats> listener) {
+
+        if (n <= 0 || sampling == null)
+            throw new java.lang.IllegalArgumentException();
+
+        return streamTrials(maxTrials, halfWidth, seed, trialOf(n, sampling), listener);
+    }
+
+    /**
+     * same as above on a general lattice, opening sites or bonds in random order
+     * @param lattice
+     * @param kind
+     * @param maxTrials
+     * @param halfWidth
+     * @param seed
+     * @param listener may be null
+     * @return the statistics after the last trial run
+     * @throws java.lang.IllegalArgumentException
+     */
+    public static RunningStats stream(Lattice lattice, LatticePercolation.Kind kind, int maxTrials,
+                                      double halfWidth, long seed, Consumer<RunningStats> listener) {
+
+        if (lattice == null || kind == null)
+            throw new java.lang.IllegalArgumentException();
+
+        return streamTrials(maxTrials, halfWidth, seed,
+                random -> latticeTrial(lattice, kind, random), listener);
+    }
+
+    private static RunningStats streamTrials(int maxTrials, double halfWidth, long seed,
+                                             Trial trial, Consumer<RunningStats> listener) {
+
+        if (maxTrials <= 0 || !(halfWidth >= 0))
+            throw new java.lang.IllegalArgumentException();
+
+        RunningStats stats = new RunningStats();
+        SplittableRandom root = new SplittableRandom(seed);
+
+        while (stats.count() < maxTrials) {
+            stats.add(trial.run(root.split()));
+
+            if (listener != null)
+                listener.accept(stats);
+            if (stats.count() >= MIN_TRIALS && stats.halfWidth() <= halfWidth)
+                break;
+        }
+
+        return stats;
+    }
+
+    /**
+     * one trial, drawing only from the given stream
+     */
+    private interface Trial {
+        double run(SplittableRandom random);
+    }
+
+    private static Trial trialOf(int n, Sampling sampling) {
+        if (sampling == Sampling.PERMUTATION)
+            return random -> permutationTrial(n, random);
+        return random -> trial(n, random);
+    }
+
+    private static double[] runTrials(int trials, long seed, int threads, Trial trial) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return runTrials(trials, seed, pool, trial);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static double[] runTrials(int trials, long seed, ForkJoinPool pool, Trial trial) {
+        double[] threshold = new double[trials];
+
+        // split sequentially here, so stream i is the same whoever runs trial i
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[trials];
+        for (int i = 0; i < trials; i++)
+            streams[i] = root.split();
+
+        pool.invoke(new TrialTask(trial, streams, threshold, 0, trials));
+        return threshold;
+    }
+
+    /**
+     * run one trial on an n-by-n grid, returning the fraction of open sites
+     * when the system first percolates
+     */
+    private static double trial(int n, SplittableRandom random) {
+        long start = PercolationMetrics.ENABLED ? System.nanoTime() : 0;
+        Percolation percolation = new Percolation(n);
+
+        while (!percolation.percolates())
+            percolation.open(random.nextInt(n) + 1, random.nextInt(n) + 1);
+
+        if (PercolationMetrics.ENABLED)
+            PercolationMetrics.trial(start, n*n, percolation.numberOfOpenSites(), percolation.metrics());
+        return percolation.numberOfOpenSites()/(n*n*1.0);
+    }
+
+    /**
+     * run one trial opening sites in the order of a random permutation, shuffled
+     * lazily one Fisher-Yates step per site, stopping as soon as the system percolates
+     */
+    private static double permutationTrial(int n, SplittableRandom random) {
+        long start = PercolationMetrics.ENABLED ? System.nanoTime() : 0;
+        Percolation percolation = new Percolation(n);
+
+        int[] sites = new int[n*n];
+        for (int i = 0; i < sites.length; i++)
+            sites[i] = i;
+
+        int opened = 0;
+        while (!percolation.percolates()) {
+            // sites[opened..] are exactly the sites still blocked
+            int j = opened + random.nextInt(sites.length - opened);
+            int site = sites[j];
+            sites[j] = sites[opened];
+            sites[opened++] = site;
+
+            percolation.open(site / n + 1, site % n + 1);
+        }
+
+        if (PercolationMetrics.ENABLED)
+            PercolationMetrics.trial(start, n*n, opened, percolation.metrics());
+        return opened/(n*n*1.0);
+    }
+
+    /**
+     * run one trial on a general lattice, opening its sites or bonds in the
+     * order of a lazily shuffled permutation until it percolates
+     */
+    private static double latticeTrial(Lattice lattice, LatticePercolation.Kind kind, SplittableRandom random) {
+        long start = PercolationMetrics.ENABLED ? System.nanoTime() : 0;
+        LatticePercolation percolation = new LatticePercolation(lattice, kind);
+
+        int[] order = new int[percolation.capacity()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+
+        int opened = 0;
+        while (!percolation.percolates()) {
+            int j = opened + random.nextInt(order.length - opened);
+            int next = order[j];
+            order[j] = order[opened];
+            order[opened++] = next;
+
+            percolation.open(next);
+        }
+
+        if (PercolationMetrics.ENABLED)
+            PercolationMetrics.trial(start, order.length, opened, percolation.metrics());
+        // a lattice with nothing to open (a single-site BOND lattice) percolates at 0
+        return order.length == 0 ? 0 : opened/(order.length*1.0);
+    }
+
+    private static class TrialTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 4;   // trials run without further splitting
+
+        private final Trial trial;
+        private final SplittableRandom[] streams;
+        private final double[] threshold;
+        private final int lo, hi;
+
+        TrialTask(Trial trial, SplittableRandom[] streams, double[] threshold, int lo, int hi) {
+            this.trial = trial;
+            this.streams = streams;
+            this.threshold = threshold;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected void compute() {
+            if (hi - lo <= THRESHOLD) {
+                for (int i = lo; i < hi; i++)
+                    threshold[i] = trial.run(streams[i]);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new TrialTask(trial, streams, threshold, lo, mid),
+                      new TrialTask(trial, streams, threshold, mid, hi));
+        }
+    }
+
     /**
      * sample mean of percolation threshold
      * @return
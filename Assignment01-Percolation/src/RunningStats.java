@@ -0,0 +1,76 @@
+public class RunningStats {
+
+    private static final double z = 1.96;
+
+    private int count;
+    private double mean;
+    private double m2;      // sum of squared deviations from the running mean
+
+    /**
+     * add one observation, updating mean and variance by Welford's method
+     * @param x
+     */
+    public void add(double x) {
+        count++;
+        double delta = x - mean;
+        mean += delta / count;
+        m2 += delta * (x - mean);
+    }
+
+    /**
+     * number of observations so far
+     * @return
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * sample mean of the observations
+     * @return
+     */
+    public double mean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * sample variance of the observations
+     * @return
+     */
+    public double var() {
+        return count < 2 ? Double.NaN : m2 / (count - 1);
+    }
+
+    /**
+     * sample standard deviation of the observations
+     * @return
+     */
+    public double stddev() {
+        return Math.sqrt(var());
+    }
+
+    /**
+     * half-width of the 95% confidence interval for the mean
+     * @return
+     */
+    public double halfWidth() {
+        return z * stddev() / Math.sqrt(count);
+    }
+
+    /**
+     * low  endpoint of 95% confidence interval
+     * @return
+     */
+    public double confidenceLo() {
+        return mean() - halfWidth();
+    }
+
+    /**
+     * high endpoint of 95% confidence interval
+     * @return
+     */
+    public double confidenceHi() {
+        return mean() + halfWidth();
+    }
+
+}
@@ -0,0 +1,241 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ConcurrentRandomizedQueue<Item> implements Iterable<Item> {
+
+    private final Shard[] shards;
+
+    // one independently locked randomized queue; dequeue from a shard is
+    // uniform over that shard's items, shards are picked uniformly
+    private static final class Shard
+    {
+        final ReentrantLock lock = new ReentrantLock();
+        final SplittableRandom random;
+        Object[] s = new Object[8];
+        volatile int N;
+
+        Shard(SplittableRandom random) {
+            this.random = random;
+        }
+
+        // caller holds lock
+        void enqueue(Object item) {
+            if (N == s.length) s = java.util.Arrays.copyOf(s, 2 * s.length);
+            s[N] = item;
+            N = N + 1;
+        }
+
+        // caller holds lock and has checked N > 0
+        Object dequeue() {
+            int n = N - 1;
+            int ri = random.nextInt(N);
+            Object item = s[ri];
+            s[ri] = s[n];
+            s[n] = null;
+            N = n;
+            if (s.length > 8 && n <= s.length/4) s = java.util.Arrays.copyOf(s, s.length/2);
+            return item;
+        }
+    }
+
+    /**
+     * construct an empty randomized queue with one shard per available processor
+     */
+    public ConcurrentRandomizedQueue() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * construct an empty randomized queue split over the given number of shards
+     * @param stripes
+     * @throws java.lang.IllegalArgumentException
+     */
+    public ConcurrentRandomizedQueue(int stripes) {
+        if (stripes <= 0)
+            throw new java.lang.IllegalArgumentException();
+
+        SplittableRandom root = new SplittableRandom();
+        shards = new Shard[stripes];
+        for (int i = 0; i < stripes; i++)
+            shards[i] = new Shard(root.split());
+    }
+
+    /**
+     * is the randomized queue empty?
+     * @return
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * return the number of items on the randomized queue; exact when no
+     * other thread is changing it
+     * @return
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards)
+            size += shard.N;
+        return size;
+    }
+
+    /**
+     * add the item to a random shard
+     * @param item
+     */
+    public void enqueue(Item item) {
+        if (item == null)
+            throw new java.lang.IllegalArgumentException();
+
+        int start = ThreadLocalRandom.current().nextInt(shards.length);
+        // prefer a shard nobody holds; after a full lap just wait for the first
+        for (int k = 0; k < shards.length; k++) {
+            Shard shard = shards[(start + k) % shards.length];
+            if (shard.lock.tryLock()) {
+                try {
+                    shard.enqueue(item);
+                } finally {
+                    shard.lock.unlock();
+                }
+                return;
+            }
+        }
+        Shard shard = shards[start];
+        shard.lock.lock();
+        try {
+            shard.enqueue(item);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * remove and return a random item
+     * @return
+     * @throws java.util.NoSuchElementException
+     */
+    public Item dequeue() {
+        Item item = poll();
+        if (item == null)
+            throw new java.util.NoSuchElementException();
+        return item;
+    }
+
+    /**
+     * remove and return a random item, or null if every shard is empty;
+     * starts at a random shard and falls back to the others in turn
+     * @return
+     */
+    public Item poll() {
+        int start = ThreadLocalRandom.current().nextInt(shards.length);
+
+        // first lap skips shards that are empty or held by another thread
+        for (int k = 0; k < shards.length; k++) {
+            Shard shard = shards[(start + k) % shards.length];
+            if (shard.N > 0 && shard.lock.tryLock()) {
+                try {
+                    if (shard.N > 0) return (Item) shard.dequeue();
+                } finally {
+                    shard.lock.unlock();
+                }
+            }
+        }
+        for (int k = 0; k < shards.length; k++) {
+            Shard shard = shards[(start + k) % shards.length];
+            if (shard.N == 0) continue;
+            shard.lock.lock();
+            try {
+                if (shard.N > 0) return (Item) shard.dequeue();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * return a random item (but do not remove it)
+     * @return
+     * @throws java.util.NoSuchElementException
+     */
+    public Item sample() {
+        int start = ThreadLocalRandom.current().nextInt(shards.length);
+        for (int k = 0; k < shards.length; k++) {
+            Shard shard = shards[(start + k) % shards.length];
+            if (shard.N == 0) continue;
+            shard.lock.lock();
+            try {
+                if (shard.N > 0) return (Item) shard.s[shard.random.nextInt(shard.N)];
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        throw new java.util.NoSuchElementException();
+    }
+
+    /**
+     * return an independent iterator over a snapshot of the items, taken
+     * shard by shard, in random order
+     * @return
+     */
+    public Iterator<Item> iterator() {
+        List<Item> snapshot = new ArrayList<Item>();
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                for (int i = 0; i < shard.N; i++)
+                    snapshot.add((Item) shard.s[i]);
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        Collections.shuffle(snapshot, ThreadLocalRandom.current());
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    /**
+     * unit testing (optional): producers and consumers share one queue;
+     * every item must come out exactly once
+     * @param args
+     */
+    public static void main(String[] args) throws InterruptedException {
+        final int threads = 8, perThread = 200000;
+        final ConcurrentRandomizedQueue<Integer> q = new ConcurrentRandomizedQueue<Integer>(4);
+        final java.util.concurrent.atomic.AtomicIntegerArray seen =
+                new java.util.concurrent.atomic.AtomicIntegerArray(threads * perThread);
+        final java.util.concurrent.atomic.AtomicInteger taken = new java.util.concurrent.atomic.AtomicInteger();
+
+        Thread[] workers = new Thread[2 * threads];
+        for (int t = 0; t < threads; t++) {
+            final int base = t * perThread;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++)
+                    q.enqueue(base + i);
+            });
+            workers[threads + t] = new Thread(() -> {
+                while (taken.get() < threads * perThread) {
+                    Integer item = q.poll();
+                    if (item == null) continue;
+                    seen.incrementAndGet(item);
+                    taken.incrementAndGet();
+                }
+            });
+        }
+        for (Thread worker : workers) worker.start();
+        for (Thread worker : workers) worker.join();
+
+        for (int i = 0; i < seen.length(); i++) {
+            if (seen.get(i) != 1) {
+                System.out.println("FAILED at " + i);
+                return;
+            }
+        }
+        System.out.println(q.isEmpty() ? "ok" : "FAILED: not empty");
+    }
+}
@@ -2,14 +2,17 @@ import java.util.Iterator;
 
 public class Deque<Item> implements Iterable<Item> {
 
-    private Node first, last;
+    private static final int MIN_CAPACITY = 8;    // power of two
+
+    private Item[] items;   // circular buffer, length always a power of two
+    private int head;       // index of the first item
     private int size;
 
-    private class Node
-    {
-        Item item;
-        Node next;
-        Node previous;
+    /**
+     * construct an empty deque
+     */
+    public Deque() {
+        items = (Item[]) new Object[MIN_CAPACITY];
     }
 
     /**
@@ -17,7 +20,7 @@ public class Deque<Item> implements Iterable<Item> {
      * @return
      */
     public boolean isEmpty() {
-        return first == null;
+        return size == 0;
     }
 
     /**
@@ -36,16 +39,10 @@ public class Deque<Item> implements Iterable<Item> {
         if (item == null)
             throw new java.lang.IllegalArgumentException();
 
+        if (size == items.length) resize(2 * items.length);
+        head = (head - 1) & (items.length - 1);
+        items[head] = item;
         ++size;
-        Node oldfirst = first;
-        first = new Node();
-        first.item = item;
-        // special cases for empty queue
-        if (oldfirst == null) last = first;
-        else {
-            first.next = oldfirst;
-            oldfirst.previous = first;
-        }
     }
 
     /**
@@ -56,16 +53,9 @@ public class Deque<Item> implements Iterable<Item> {
         if (item == null)
             throw new java.lang.IllegalArgumentException();
 
+        if (size == items.length) resize(2 * items.length);
+        items[(head + size) & (items.length - 1)] = item;
         ++size;
-        Node oldlast = last;
-        last = new Node();
-        last.item = item;
-        // special cases for empty queue
-        if (isEmpty()) first = last;
-        else {
-            oldlast.next = last;
-            last.previous = oldlast;
-        }
     }
 
     /**
@@ -76,11 +66,11 @@ public class Deque<Item> implements Iterable<Item> {
         if (isEmpty())
             throw new java.util.NoSuchElementException();
 
+        Item item = items[head];
+        items[head] = null;     // avoid loitering
+        head = (head + 1) & (items.length - 1);
         --size;
-        Item item = first.item;
-        first = first.next;
-        // special cases for empty queue
-        if (isEmpty()) last = null;
+        shrink();
         return item;
     }
 
@@ -92,11 +82,11 @@ public class Deque<Item> implements Iterable<Item> {
         if (isEmpty())
             throw new java.util.NoSuchElementException();
 
+        int tail = (head + size - 1) & (items.length - 1);
+        Item item = items[tail];
+        items[tail] = null;     // avoid loitering
         --size;
-        Item item = last.item;
-        last = last.previous;
-        // special cases for empty queue
-        if (last == null) first = null;
+        shrink();
         return item;
     }
 
@@ -104,13 +94,13 @@ public class Deque<Item> implements Iterable<Item> {
      * return an iterator over items in order from front to end
      * @return
      */
-    public Iterator<Item> iterator() { return new ListIterator(); }
+    public Iterator<Item> iterator() { return new ArrayIterator(); }
 
-    private class ListIterator implements Iterator<Item>
+    private class ArrayIterator implements Iterator<Item>
     {
-        private Node current = first;
+        private int i = 0;
 
-        public boolean hasNext() { return current != null; }
+        public boolean hasNext() { return i < size; }
 
         public void remove() {
             /* not supported */
@@ -122,12 +112,26 @@ public class Deque<Item> implements Iterable<Item> {
             if (!hasNext())
                 throw new java.util.NoSuchElementException();
 
-            Item item = current.item;
-            current = current.next;
-            return item;
+            return items[(head + i++) & (items.length - 1)];
         }
     }
 
+    // halve the buffer once it is a quarter full
+    private void shrink() {
+        if (items.length > MIN_CAPACITY && size == items.length / 4)
+            resize(items.length / 2);
+    }
+
+    // copy the items, front first, into a buffer of the given power-of-two capacity
+    private void resize(int capacity) {
+        Item[] copy = (Item[]) new Object[capacity];
+        int front = Math.min(size, items.length - head);
+        System.arraycopy(items, head, copy, 0, front);
+        System.arraycopy(items, 0, copy, front, size - front);
+        items = copy;
+        head = 0;
+    }
+
     /**
      * unit testing (optional)
      * @param args
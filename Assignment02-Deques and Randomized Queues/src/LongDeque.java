@@ -0,0 +1,184 @@
+import java.util.PrimitiveIterator;
+
+public class LongDeque implements Iterable<Long> {
+
+    private static final int MIN_CAPACITY = 8;    // power of two
+
+    private long[] items;     // circular buffer, length always a power of two
+    private int head;       // index of the first item
+    private int size;
+
+    /**
+     * construct an empty deque
+     */
+    public LongDeque() {
+        items = new long[MIN_CAPACITY];
+    }
+
+    /**
+     * is the deque empty?
+     * @return
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * return the number of items on the deque
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * add the item to the front
+     * @param item
+     */
+    public void addFirst(long item) {
+        if (size == items.length) resize(2 * items.length);
+        head = (head - 1) & (items.length - 1);
+        items[head] = item;
+        ++size;
+    }
+
+    /**
+     * add the item to the end
+     * @param item
+     */
+    public void addLast(long item) {
+        if (size == items.length) resize(2 * items.length);
+        items[(head + size) & (items.length - 1)] = item;
+        ++size;
+    }
+
+    /**
+     * add all the items to the end, in order
+     * @param src
+     */
+    public void addAll(long[] src) {
+        if (src == null)
+            throw new java.lang.IllegalArgumentException();
+
+        int capacity = items.length;
+        while (capacity - size < src.length) capacity *= 2;
+        if (capacity != items.length) resize(capacity);
+
+        int tail = (head + size) & (items.length - 1);
+        int first = Math.min(src.length, items.length - tail);
+        System.arraycopy(src, 0, items, tail, first);
+        System.arraycopy(src, first, items, 0, src.length - first);
+        size += src.length;
+    }
+
+    /**
+     * remove and return the item from the front
+     * @return
+     */
+    public long removeFirst() {
+        if (isEmpty())
+            throw new java.util.NoSuchElementException();
+
+        long item = items[head];
+        head = (head + 1) & (items.length - 1);
+        --size;
+        shrink();
+        return item;
+    }
+
+    /**
+     * remove and return the item from the end
+     * @return
+     */
+    public long removeLast() {
+        if (isEmpty())
+            throw new java.util.NoSuchElementException();
+
+        long item = items[(head + size - 1) & (items.length - 1)];
+        --size;
+        shrink();
+        return item;
+    }
+
+    /**
+     * remove items from the front into dst, in order, until dst is full or
+     * the deque is empty
+     * @param dst
+     * @return the number of items removed
+     */
+    public int drainTo(long[] dst) {
+        if (dst == null)
+            throw new java.lang.IllegalArgumentException();
+
+        int count = Math.min(size, dst.length);
+        int first = Math.min(count, items.length - head);
+        System.arraycopy(items, head, dst, 0, first);
+        System.arraycopy(items, 0, dst, first, count - first);
+        head = (head + count) & (items.length - 1);
+        size -= count;
+        shrink();
+        return count;
+    }
+
+    /**
+     * return an iterator over items in order from front to end
+     * @return
+     */
+    public PrimitiveIterator.OfLong iterator() { return new ArrayIterator(); }
+
+    private class ArrayIterator implements PrimitiveIterator.OfLong
+    {
+        private int i = 0;
+
+        public boolean hasNext() { return i < size; }
+
+        public void remove() {
+            /* not supported */
+            throw new java.lang.UnsupportedOperationException();
+        }
+
+        public long nextLong()
+        {
+            if (!hasNext())
+                throw new java.util.NoSuchElementException();
+
+            return items[(head + i++) & (items.length - 1)];
+        }
+    }
+
+    // halve the buffer while it is at most a quarter full
+    private void shrink() {
+        int capacity = items.length;
+        while (capacity > MIN_CAPACITY && size <= capacity / 4) capacity /= 2;
+        if (capacity != items.length) resize(capacity);
+    }
+
+    // copy the items, front first, into a buffer of the given power-of-two capacity
+    private void resize(int capacity) {
+        long[] copy = new long[capacity];
+        int front = Math.min(size, items.length - head);
+        System.arraycopy(items, head, copy, 0, front);
+        System.arraycopy(items, 0, copy, front, size - front);
+        items = copy;
+        head = 0;
+    }
+
+    /**
+     * unit testing (optional)
+     * @param args
+     */
+    public static void main(String[] args) {
+        LongDeque d = new LongDeque();
+
+        d.addAll(new long[] { 0, 1, 2, 3, 4 });
+        for (int i = 0; i < 5; i++) {
+            d.addFirst(i);
+        }
+        for (int i = 0; i < 5; i++) {
+            System.out.println(d.removeLast());
+        }
+        long[] rest = new long[d.size()];
+        d.drainTo(rest);
+        System.out.println(java.util.Arrays.toString(rest));
+    }
+}
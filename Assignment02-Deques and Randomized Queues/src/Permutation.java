@@ -1,23 +1,130 @@
-import edu.princeton.cs.algs4.StdIn;
 import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 
 public class Permutation {
 
+    /**
+     * print k of the whitespace-separated tokens on standard input (or in the
+     * file named by the second argument), chosen uniformly at random and in
+     * random order, keeping only k of them in memory at any time
+     * @param args
+     */
     public static void main(String[] args) {
-        RandomizedQueue<String> s = new RandomizedQueue<String>();
-
         int k = Integer.valueOf(args[0]);
 
-        while (!StdIn.isEmpty()) {
-            String line = StdIn.readString();
-            s.enqueue(line);
+        RandomizedQueue<String> s;
+        try (InputStream in = args.length > 1 ? new FileInputStream(args[1]) : System.in) {
+            s = sample(new TokenReader(in), k);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
 
-        for (int i = 0; i < k; i++) {
+        while (!s.isEmpty()) {
             String item = s.dequeue();
             StdOut.println(item);
         }
 
     }
 
+    /**
+     * reservoir-sample k tokens (Algorithm L): fill the reservoir, then jump
+     * straight to the next token that replaces a random reservoir item, so the
+     * RNG is called O(k log(n/k)) times and skipped tokens are never decoded
+     */
+    private static RandomizedQueue<String> sample(TokenReader in, int k) throws IOException {
+        RandomizedQueue<String> reservoir = new RandomizedQueue<String>();
+        if (k <= 0) return reservoir;
+
+        String token;
+        while (reservoir.size() < k && (token = in.next()) != null)
+            reservoir.enqueue(token);
+        if (reservoir.size() < k) return reservoir;
+
+        double w = Math.exp(Math.log(random()) / k);
+        while (true) {
+            long skip = (long) Math.floor(Math.log(random()) / Math.log(1 - w));
+            for (long i = 0; i < skip; i++) {
+                if (!in.skip()) return reservoir;
+            }
+            if ((token = in.next()) == null) return reservoir;
+
+            reservoir.dequeue();    // evict a uniformly random item
+            reservoir.enqueue(token);
+            w *= Math.exp(Math.log(random()) / k);
+        }
+    }
+
+    // uniform in (0, 1], so its log is finite
+    private static double random() {
+        return 1.0 - StdRandom.uniform();
+    }
+
+    /**
+     * whitespace-separated tokens read through one reusable byte buffer
+     */
+    private static class TokenReader
+    {
+        private final InputStream in;
+        private final byte[] buffer = new byte[1 << 16];
+        private int position, limit;
+        private byte[] token = new byte[64];
+
+        TokenReader(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * next token, or null at end of input
+         */
+        String next() throws IOException {
+            if (!skipSpace()) return null;
+
+            int length = 0;
+            int b;
+            while ((b = read()) > ' ') {
+                if (length == token.length) token = java.util.Arrays.copyOf(token, 2 * length);
+                token[length++] = (byte) b;
+            }
+            return new String(token, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * pass over the next token without decoding it; false at end of input
+         */
+        boolean skip() throws IOException {
+            if (!skipSpace()) return false;
+
+            while (read() > ' ') { }
+            return true;
+        }
+
+        // leave position at the next non-space byte; false at end of input
+        private boolean skipSpace() throws IOException {
+            int b;
+            while ((b = read()) >= 0 && b <= ' ') { }
+            if (b < 0) return false;
+            position--;
+            return true;
+        }
+
+        // next byte as 0..255, or -1 at end of input
+        private int read() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++] & 0xff;
+        }
+    }
+
 }
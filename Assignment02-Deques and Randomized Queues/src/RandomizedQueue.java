@@ -1,3 +1,4 @@
+import java.util.Arrays;
 import java.util.Iterator;
 import edu.princeton.cs.algs4.StdRandom;
 
@@ -31,10 +32,7 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
 
     private void resize(int capacity)
     {
-        Item[] copy = (Item[]) new Object[capacity];
-        for (int i = 0; i < N; i++)
-            copy[i] = s[i];
-        s = copy;
+        s = Arrays.copyOf(s, capacity);
     }
 
     /**
@@ -65,6 +63,37 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         return item;
     }
 
+    /**
+     * remove and return k random items, as by k calls to dequeue() but with
+     * at most one resize at the end; like Collection.toArray(T[]), they go
+     * into a if it has room (followed by a null if it has more), otherwise
+     * into a new array of the same runtime type
+     * @param k
+     * @param a
+     * @return
+     * @throws java.lang.IllegalArgumentException if k is negative or a is null
+     * @throws java.util.NoSuchElementException if fewer than k items remain
+     */
+    public Item[] dequeue(int k, Item[] a) {
+        if (k < 0 || a == null)
+            throw new java.lang.IllegalArgumentException();
+        if (k > N)
+            throw new java.util.NoSuchElementException();
+
+        Item[] items = destination(k, a);
+        for (int i = 0; i < k; i++) {
+            int ri = StdRandom.uniform(N);
+            items[i] = s[ri];
+            s[ri] = s[--N];
+            s[N] = null;
+        }
+
+        int capacity = s.length;
+        while (N > 0 && (N + 1) <= capacity/4) capacity /= 2;
+        if (capacity != s.length) resize(capacity);
+        return items;
+    }
+
     /**
      * return a random item (but do not remove it)
      * @return
@@ -77,6 +106,58 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         return s[ri];
     }
 
+    /**
+     * return k random items (but do not remove them), into a or a new array
+     * as in dequeue(k, a); without replacement they are k distinct items,
+     * drawn by a partial Fisher-Yates pass whose swaps are undone before
+     * returning, so open iterators are not disturbed
+     * @param k
+     * @param withReplacement
+     * @param a
+     * @return
+     * @throws java.lang.IllegalArgumentException if k is negative, a is null, or
+     *         k exceeds size() > 0 without replacement
+     * @throws java.util.NoSuchElementException if the queue is empty and k > 0
+     */
+    public Item[] sample(int k, boolean withReplacement, Item[] a) {
+        if (k < 0 || a == null)
+            throw new java.lang.IllegalArgumentException();
+        if (k > 0 && isEmpty())
+            throw new java.util.NoSuchElementException();
+        if (!withReplacement && k > N)
+            throw new java.lang.IllegalArgumentException();
+
+        Item[] items = destination(k, a);
+        if (withReplacement) {
+            for (int i = 0; i < k; i++)
+                items[i] = s[StdRandom.uniform(N)];
+            return items;
+        }
+
+        int[] picks = new int[k];
+        for (int i = 0; i < k; i++) {
+            int ri = i + StdRandom.uniform(N - i);
+            Item item = s[ri];
+            s[ri] = s[i];
+            s[i] = item;
+            items[i] = item;
+            picks[i] = ri;
+        }
+        for (int i = k - 1; i >= 0; i--) {
+            Item item = s[picks[i]];
+            s[picks[i]] = s[i];
+            s[i] = item;
+        }
+        return items;
+    }
+
+    // a if it holds k items (null-terminated when longer), else a new array of its type
+    private static <T> T[] destination(int k, T[] a) {
+        if (a.length < k) return Arrays.copyOf(a, k);
+        if (a.length > k) a[k] = null;
+        return a;
+    }
+
     /**
      * return an independent iterator over items in random order
      * @return
@@ -84,20 +165,18 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
     public Iterator<Item> iterator()
     { return new ArrayIterator(); }
 
+    // Fisher-Yates shuffle run one step per next(). Positions the shuffle has
+    // moved sit in a small hash map, so creating the iterator costs O(1) and
+    // reading the first few items allocates almost nothing; once an eighth
+    // of the items have been read the rest switches to a dense index array.
     private class ArrayIterator implements Iterator<Item>
     {
-        private int i = N;
-        private int[] order;
-
-        public ArrayIterator() {
-            order = new int[N];
-            for (int j = 0; j < N; j++) {
-                order[j] = j;
-            }
-            StdRandom.shuffle(order);
-        }
+        private final int n = N;
+        private int i = 0;
+        private IntMap moved = new IntMap();
+        private int[] order;                // dense positions, once materialized
 
-        public boolean hasNext() { return i > 0; }
+        public boolean hasNext() { return i < n; }
         public void remove() {
             /* not supported */
             throw new java.lang.UnsupportedOperationException();
@@ -106,7 +185,73 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
             if (!hasNext())
                 throw new java.util.NoSuchElementException();
 
-            return s[order[--i]];
+            int ri = i + StdRandom.uniform(n - i);
+            if (order != null) {
+                int pick = order[ri];
+                order[ri] = order[i++];
+                return s[pick];
+            }
+
+            int pick = moved.get(ri, ri);
+            moved.put(ri, moved.get(i, i));
+            if (++i > (n >>> 3) && i < n) materialize();
+            return s[pick];
+        }
+
+        private void materialize() {
+            order = new int[n];
+            for (int j = i; j < n; j++)
+                order[j] = moved.get(j, j);
+            moved = null;
+        }
+    }
+
+    // open-addressing int -> int map for the lazy shuffle; keys are >= 0
+    private static class IntMap
+    {
+        private int[] keys = new int[16];
+        private int[] values = new int[16];
+        private int size;
+
+        IntMap() {
+            Arrays.fill(keys, -1);
+        }
+
+        int get(int key, int absent) {
+            int mask = keys.length - 1;
+            for (int h = hash(key) & mask; keys[h] >= 0; h = (h + 1) & mask) {
+                if (keys[h] == key) return values[h];
+            }
+            return absent;
+        }
+
+        void put(int key, int value) {
+            int mask = keys.length - 1;
+            int h = hash(key) & mask;
+            for (; keys[h] >= 0; h = (h + 1) & mask) {
+                if (keys[h] == key) {
+                    values[h] = value;
+                    return;
+                }
+            }
+            keys[h] = key;
+            values[h] = value;
+            if (++size > keys.length / 2) rehash();
+        }
+
+        private void rehash() {
+            int[] oldKeys = keys, oldValues = values;
+            keys = new int[2 * oldKeys.length];
+            values = new int[2 * oldKeys.length];
+            Arrays.fill(keys, -1);
+            size = 0;
+            for (int h = 0; h < oldKeys.length; h++) {
+                if (oldKeys[h] >= 0) put(oldKeys[h], oldValues[h]);
+            }
+        }
+
+        private static int hash(int key) {
+            return key * 0x9E3779B9 >>> 7 ^ key;
         }
     }
 
@@ -0,0 +1,243 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+
+/**
+ * Chase-Lev work-stealing deque. The owner thread alone may call addLast,
+ * removeLast and pollLast; thieves, on any thread, call removeFirst and
+ * pollFirst. There is no addFirst. Neither end takes a lock: the owner
+ * touches only bottom except when racing a thief for the last item, and
+ * thieves claim items with a CAS on top.
+ */
+public class WorkStealingDeque<Item> implements Iterable<Item> {
+
+    private static final int MIN_CAPACITY = 32;   // power of two
+
+    private static final VarHandle TOP;
+    static {
+        try {
+            TOP = MethodHandles.lookup().findVarHandle(WorkStealingDeque.class, "top", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // items live at indices [top, bottom), slot i at items[i & (length-1)];
+    // an old buffer is never cleared after growth, so a thief still reading it sees valid items
+    private volatile Object[] items;
+    private volatile long top;
+    private volatile long bottom;
+
+    /**
+     * construct an empty deque
+     */
+    public WorkStealingDeque() {
+        items = new Object[MIN_CAPACITY];
+    }
+
+    /**
+     * is the deque empty?
+     * @return
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * return the number of items on the deque, from a top and bottom
+     * that were both current at one instant
+     * @return
+     */
+    public int size() {
+        while (true) {
+            long t = top;
+            long b = bottom;
+            if (t == top)
+                return (int) Math.max(0, b - t);
+        }
+    }
+
+    /**
+     * add the item to the end (owner thread only)
+     * @param item
+     */
+    public void addLast(Item item) {
+        if (item == null)
+            throw new java.lang.IllegalArgumentException();
+
+        long b = bottom;
+        long t = top;
+        Object[] a = items;
+        if (b - t >= a.length) a = grow(a, t, b);
+        a[(int) b & (a.length - 1)] = item;
+        bottom = b + 1;     // volatile write publishes the item to thieves
+    }
+
+    /**
+     * remove and return the item from the end (owner thread only)
+     * @return
+     */
+    public Item removeLast() {
+        Item item = pollLast();
+        if (item == null)
+            throw new java.util.NoSuchElementException();
+        return item;
+    }
+
+    /**
+     * remove and return the item from the end, or null if the deque is empty
+     * (owner thread only)
+     * @return
+     */
+    public Item pollLast() {
+        long b = bottom - 1;
+        Object[] a = items;
+        bottom = b;         // claim slot b before looking at top
+        long t = top;
+
+        if (t > b) {        // empty
+            bottom = b + 1;
+            return null;
+        }
+
+        int slot = (int) b & (a.length - 1);
+        Item item = (Item) a[slot];
+        if (t == b) {       // last item: race the thieves for it
+            if (!TOP.compareAndSet(this, t, t + 1))
+                item = null;
+            bottom = b + 1;
+        }
+        if (item != null) a[slot] = null;   // no thief can claim slot b any more
+        return item;
+    }
+
+    /**
+     * remove and return the item from the front (any thread)
+     * @return
+     */
+    public Item removeFirst() {
+        Item item = pollFirst();
+        if (item == null)
+            throw new java.util.NoSuchElementException();
+        return item;
+    }
+
+    /**
+     * remove and return the item from the front, or null if the deque is
+     * empty (any thread); retries while losing races to other thieves
+     * @return
+     */
+    public Item pollFirst() {
+        while (true) {
+            long t = top;
+            long b = bottom;
+            if (t >= b) return null;
+
+            Object[] a = items;
+            Item item = (Item) a[(int) t & (a.length - 1)];
+            if (TOP.compareAndSet(this, t, t + 1))
+                return item;
+        }
+    }
+
+    /**
+     * return a weakly consistent iterator over items in order from front to
+     * end; exact only while no other thread changes the deque
+     * @return
+     */
+    public Iterator<Item> iterator() { return new ArrayIterator(); }
+
+    private class ArrayIterator implements Iterator<Item>
+    {
+        private final Object[] a = items;
+        private final long end = bottom;
+        private long i = top;
+
+        public boolean hasNext() { return i < end; }
+
+        public void remove() {
+            /* not supported */
+            throw new java.lang.UnsupportedOperationException();
+        }
+
+        public Item next()
+        {
+            if (!hasNext())
+                throw new java.util.NoSuchElementException();
+
+            return (Item) a[(int) i++ & (a.length - 1)];
+        }
+    }
+
+    // copy [t, b) into a buffer twice the size and publish it
+    private Object[] grow(Object[] a, long t, long b) {
+        Object[] copy = new Object[2 * a.length];
+        for (long i = t; i < b; i++)
+            copy[(int) i & (copy.length - 1)] = a[(int) i & (a.length - 1)];
+        items = copy;
+        return copy;
+    }
+
+    /**
+     * linearizability stress test: one owner pushes increasing values and
+     * pops some back while thieves steal; every value must come out exactly
+     * once, and each thief must see its values in increasing order
+     * @param args
+     */
+    public static void main(String[] args) throws InterruptedException {
+        final int items = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+        final int thieves = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        final WorkStealingDeque<Integer> deque = new WorkStealingDeque<Integer>();
+        final java.util.concurrent.atomic.AtomicIntegerArray seen =
+                new java.util.concurrent.atomic.AtomicIntegerArray(items);
+        final java.util.concurrent.atomic.AtomicBoolean done = new java.util.concurrent.atomic.AtomicBoolean();
+        final java.util.concurrent.atomic.AtomicReference<String> failure =
+                new java.util.concurrent.atomic.AtomicReference<String>();
+
+        Thread[] workers = new Thread[thieves];
+        for (int k = 0; k < thieves; k++) {
+            workers[k] = new Thread(() -> {
+                int last = -1;
+                while (true) {
+                    boolean finished = done.get();
+                    Integer item = deque.pollFirst();
+                    if (item == null) {
+                        if (finished) return;
+                        continue;
+                    }
+                    if (item <= last) failure.compareAndSet(null, "steals out of order: " + last + ", " + item);
+                    last = item;
+                    if (seen.getAndIncrement(item) != 0) failure.compareAndSet(null, "taken twice: " + item);
+                    if (deque.size() < 0) failure.compareAndSet(null, "negative size");
+                }
+            });
+            workers[k].start();
+        }
+
+        java.util.Random random = new java.util.Random(1);
+        for (int i = 0; i < items; i++) {
+            deque.addLast(i);
+            if (random.nextInt(4) == 0) {
+                Integer item = deque.pollLast();
+                if (item != null && seen.getAndIncrement(item) != 0)
+                    failure.compareAndSet(null, "taken twice: " + item);
+            }
+        }
+        Integer item;
+        while ((item = deque.pollLast()) != null) {
+            if (seen.getAndIncrement(item) != 0)
+                failure.compareAndSet(null, "taken twice: " + item);
+        }
+        done.set(true);
+        for (Thread worker : workers)
+            worker.join();
+
+        for (int i = 0; i < items && failure.get() == null; i++) {
+            if (seen.get(i) != 1) failure.compareAndSet(null, "lost: " + i);
+        }
+        if (!deque.isEmpty()) failure.compareAndSet(null, "not empty at the end");
+
+        System.out.println(failure.get() == null ? "ok" : "FAILED " + failure.get());
+    }
+}
@@ -2,7 +2,7 @@ import edu.princeton.cs.algs4.In;
 
 import java.util.Arrays;
 
-public class BruteCollinearPoints {
+public class BruteCollinearPoints implements CollinearPoints {
 
     private LineSegment[] segments;
     private int numberOfSegments;
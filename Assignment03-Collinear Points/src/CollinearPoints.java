@@ -0,0 +1,15 @@
+public interface CollinearPoints {
+
+    /**
+     * the number of line segments
+     * @return
+     */
+    int numberOfSegments();
+
+    /**
+     * the line segments
+     * @return
+     */
+    LineSegment[] segments();
+
+}
@@ -1,8 +1,10 @@
 import edu.princeton.cs.algs4.In;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
-public class FastCollinearPoints {
+public class FastCollinearPoints implements CollinearPoints {
 
     private LineSegment[] segments;
     private int numberOfSegments;
@@ -14,61 +16,214 @@ public class FastCollinearPoints {
     public FastCollinearPoints(Point[] points) {
         if(points == null) throw new java.lang.IllegalArgumentException();
 
+        for (int i = 0; i < points.length; i++) {
+            if(points[i] == null) throw new java.lang.IllegalArgumentException();
+        }
+
         Point[] slopeOrderPoints = points.clone();
         int countOfSegments = 0;
-        LineSegment[] temp_segments = new LineSegment[points.length*points.length];
+        LineSegment[] temp_segments = new LineSegment[16];     // grows on demand
 
         for (int i = 0; i < points.length; i++) {
 
-            if(points[i] == null) throw new java.lang.IllegalArgumentException();
+            Point origin = points[i];
+            Arrays.sort(slopeOrderPoints, origin.slopeOrder());
+
+            // slopeOrderPoints[lo, hi) is one run of points at the same slope from origin
+            for (int lo = 0, hi; lo < slopeOrderPoints.length; lo = hi) {
+
+                double slope = origin.slopeTo(slopeOrderPoints[lo]);
+                for (hi = lo + 1; hi < slopeOrderPoints.length && origin.slopeTo(slopeOrderPoints[hi]) == slope; hi++) { }
+
+                if (hi - lo < 3) continue;  // with origin, fewer than 4 points
 
-            Arrays.sort(slopeOrderPoints, points[i].slopeOrder());
-
-            for (int j = 0; j < slopeOrderPoints.length-1; ++j) {
-
-                Point[] temp_segment = new Point[points.length];  // initiate a temp segment contains all the points at most
-                temp_segment[0] = points[i];    // one point of the temp segment must be points[i]
-                int count = 1;  // count records how many points the temp segment contains now
-
-                if (points[i].slopeTo(slopeOrderPoints[j]) == points[i].slopeTo(slopeOrderPoints[j+1])) {
-                    while (j < slopeOrderPoints.length - 1) {
-                        temp_segment[count++] = slopeOrderPoints[j];
-                        if (points[i].slopeTo(slopeOrderPoints[j]) == points[i].slopeTo(slopeOrderPoints[j+1])) {
-                            ++j;
-                        }
-                        else {
-                            break;
-                        }
-                    }
-                    if (j == slopeOrderPoints.length - 1) {
-                        temp_segment[count++] = slopeOrderPoints[j];
-                    }
-
-                    if (count >= 4) {
-                        Point[] segment = new Point[count];
-                        for (int k = 0; k < count; k++) {
-                            segment[k] = temp_segment[k];
-                        }
-                        Arrays.sort(segment);
-                        LineSegment line = new LineSegment(segment[0], segment[count - 1]);
-                        boolean isIn = false;
-                        for (int k = 0; k < countOfSegments; k++) {
-                            if (temp_segments[k].toString().compareTo(line.toString()) == 0) {
-                                isIn = true;
-                                break;
-                            }
-                        }
-                        if (!isIn) {
-                            temp_segments[countOfSegments++] = line;
-                        }
-                    }
+                // endpoints of the segment in one pass, without copying the run
+                Point min = origin, max = origin;
+                for (int k = lo; k < hi; k++) {
+                    if (slopeOrderPoints[k].compareTo(min) < 0) min = slopeOrderPoints[k];
+                    if (slopeOrderPoints[k].compareTo(max) > 0) max = slopeOrderPoints[k];
+                }
+
+                // every point of the segment sees it; only its smallest point reports it
+                if (min == origin) {
+                    if (countOfSegments == temp_segments.length)
+                        temp_segments = Arrays.copyOf(temp_segments, 2 * countOfSegments);
+                    temp_segments[countOfSegments++] = new LineSegment(min, max);
                 }
             }
         }
         numberOfSegments = countOfSegments;
-        segments = new LineSegment[countOfSegments];
-        for (int i = 0; i < countOfSegments; i++) {
-            segments[i] = temp_segments[i];
+        segments = Arrays.copyOf(temp_segments, countOfSegments);
+    }
+
+    /**
+     * finds all line segments containing 4 or more points, working on primitive
+     * coordinates: each slope is computed once per origin as an exact direction,
+     * origins' neighbours are sorted as int indices by integer cross products, and
+     * a segment is reported only from its smallest point, so no duplicates arise
+     * @param points
+     */
+    public FastCollinearPoints(PointSet points) {
+        if(points == null) throw new java.lang.IllegalArgumentException();
+
+        SlopeScan scan = new SlopeScan(points);
+        for (int origin = 0; origin < points.size(); origin++)
+            scan.scan(origin);
+
+        segments = collect(points, new SlopeScan[] { scan });
+        numberOfSegments = segments.length;
+    }
+
+    /**
+     * same as above with the origins split into contiguous blocks across a
+     * fork-join pool; each block owns its buffers, and blocks are merged in
+     * origin order, so the segments come out exactly as in the serial scan
+     * @param points
+     * @param pool
+     */
+    public FastCollinearPoints(PointSet points, ForkJoinPool pool) {
+        if(points == null || pool == null) throw new java.lang.IllegalArgumentException();
+
+        int blocks = Math.max(1, Math.min(points.size(), 4 * pool.getParallelism()));
+        SlopeScan[] scans = new SlopeScan[blocks];
+        pool.invoke(new ScanTask(points, scans, 0, blocks));
+
+        segments = collect(points, scans);
+        numberOfSegments = segments.length;
+    }
+
+    // concatenate the (smallest, largest) pairs found by each scan, in order
+    private static LineSegment[] collect(PointSet points, SlopeScan[] scans) {
+        int total = 0;
+        for (SlopeScan scan : scans)
+            total += scan.count;
+
+        LineSegment[] segments = new LineSegment[total];
+        int k = 0;
+        for (SlopeScan scan : scans) {
+            for (int i = 0; i < scan.count; i++)
+                segments[k++] = new LineSegment(points.point(scan.ends[2*i]), points.point(scan.ends[2*i+1]));
+        }
+        return segments;
+    }
+
+    private static class ScanTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final PointSet points;
+        private final SlopeScan[] scans;
+        private final int lo, hi;   // block range
+
+        ScanTask(PointSet points, SlopeScan[] scans, int lo, int hi) {
+            this.points = points;
+            this.scans = scans;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected void compute() {
+            if (hi - lo == 1) {
+                int n = points.size(), blocks = scans.length;
+                SlopeScan scan = new SlopeScan(points);
+                for (int origin = (int) ((long) lo * n / blocks); origin < (long) hi * n / blocks; origin++)
+                    scan.scan(origin);
+                scans[lo] = scan;
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new ScanTask(points, scans, lo, mid), new ScanTask(points, scans, mid, hi));
+        }
+    }
+
+    /**
+     * per-origin slope sort over a PointSet, reusing its buffers for every origin
+     */
+    private static class SlopeScan
+    {
+        private final PointSet points;
+        private final long[] dx, dy;    // direction from the origin, normalized to dx > 0 or dx == 0, dy > 0
+        private final int[] order, aux;
+        private final boolean wide;     // coordinate differences may overflow a long product
+        int[] ends = new int[16];       // (smallest, largest) point index per segment found
+        int count;
+
+        SlopeScan(PointSet points) {
+            this.points = points;
+            int n = points.size();
+            dx = new long[n];
+            dy = new long[n];
+            order = new int[n];
+            aux = new int[n];
+
+            boolean wide = false;
+            for (int i = 0; i < n; i++) {
+                if (Math.abs((long) points.x(i)) >= 1L << 30 || Math.abs((long) points.y(i)) >= 1L << 30)
+                    wide = true;
+            }
+            this.wide = wide;
+        }
+
+        void scan(int origin) {
+            long ox = points.x(origin), oy = points.y(origin);
+            int m = 0;
+            for (int j = 0; j < points.size(); j++) {
+                if (j == origin) continue;
+                long ddx = points.x(j) - ox, ddy = points.y(j) - oy;
+                if (ddx < 0 || (ddx == 0 && ddy < 0)) {
+                    ddx = -ddx;
+                    ddy = -ddy;
+                }
+                dx[j] = ddx;
+                dy[j] = ddy;
+                order[m++] = j;
+            }
+
+            // stable, so each equal-slope run stays in ascending point order
+            sort(0, m);
+
+            for (int lo = 0, hi; lo < m; lo = hi) {
+                for (hi = lo + 1; hi < m && compare(order[lo], order[hi]) == 0; hi++) { }
+                // report only when the origin is the run's smallest point
+                if (hi - lo >= 3 && order[lo] > origin) {
+                    if (2*count == ends.length) ends = java.util.Arrays.copyOf(ends, 2*ends.length);
+                    ends[2*count] = origin;
+                    ends[2*count+1] = order[hi-1];
+                    count++;
+                }
+            }
+        }
+
+        // compare slopes dy[a]/dx[a] and dy[b]/dx[b] exactly, as dy[a]*dx[b] vs dy[b]*dx[a]
+        private int compare(int a, int b) {
+            long l1 = dy[a] * dx[b], l2 = dy[b] * dx[a];
+            if (!wide) return Long.compare(l1, l2);
+
+            int high = Long.compare(Math.multiplyHigh(dy[a], dx[b]), Math.multiplyHigh(dy[b], dx[a]));
+            return high != 0 ? high : Long.compareUnsigned(l1, l2);
+        }
+
+        // stable merge sort of order[lo, hi) by slope
+        private void sort(int lo, int hi) {
+            if (hi - lo <= 12) {
+                for (int i = lo + 1; i < hi; i++) {
+                    int v = order[i], j = i;
+                    for (; j > lo && compare(order[j-1], v) > 0; j--)
+                        order[j] = order[j-1];
+                    order[j] = v;
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            sort(lo, mid);
+            sort(mid, hi);
+            if (compare(order[mid-1], order[mid]) <= 0) return;
+
+            System.arraycopy(order, lo, aux, lo, hi - lo);
+            for (int i = lo, l = lo, r = mid; i < hi; i++) {
+                if (l == mid) order[i] = aux[r++];
+                else if (r == hi || compare(aux[r], aux[l]) >= 0) order[i] = aux[l++];
+                else order[i] = aux[r++];
+            }
         }
     }
 
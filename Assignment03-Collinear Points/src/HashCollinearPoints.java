@@ -0,0 +1,188 @@
+import edu.princeton.cs.algs4.In;
+
+import java.util.Arrays;
+
+public class HashCollinearPoints implements CollinearPoints {
+
+    private LineSegment[] segments;
+    private int numberOfSegments;
+
+    /**
+     * finds all line segments containing 4 or more points by hashing, for
+     * each origin, the reduced direction (dx/g, dy/g) to every other point
+     * instead of sorting by slope: O(n^2) expected time
+     * @param points
+     */
+    public HashCollinearPoints(PointSet points) {
+        if(points == null) throw new java.lang.IllegalArgumentException();
+
+        int n = points.size();
+        DirectionTable table = new DirectionTable(n);
+        int[] slots = new int[n];       // table slot of each point's direction from the origin
+        int[] ends = new int[16];
+        int count = 0;
+
+        for (int origin = 0; origin < n; origin++) {
+            table.clear();
+            long ox = points.x(origin), oy = points.y(origin);
+
+            for (int j = 0; j < n; j++) {
+                if (j != origin) slots[j] = table.add(points.x(j) - ox, points.y(j) - oy, j, j < origin);
+            }
+
+            // a direction is a segment from origin if it holds 3+ other points,
+            // none smaller than origin; report it once, at its largest point
+            for (int j = origin + 1; j < n; j++) {
+                int slot = slots[j];
+                if (table.last[slot] == j && table.count[slot] >= 3 && !table.smaller[slot]) {
+                    if (2*count == ends.length) ends = Arrays.copyOf(ends, 2*ends.length);
+                    ends[2*count] = origin;
+                    ends[2*count+1] = j;
+                    count++;
+                }
+            }
+        }
+
+        numberOfSegments = count;
+        segments = new LineSegment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new LineSegment(points.point(ends[2*i]), points.point(ends[2*i+1]));
+        }
+    }
+
+    /**
+     * finds all line segments containing 4 or more points
+     * @param points
+     */
+    public HashCollinearPoints(Point[] points) {
+        this(new PointSet(points));
+    }
+
+    /**
+     * finds all line segments of 4 or more of the points lying in the window
+     * [xmin, xmax] x [ymin, ymax], visiting only the grid cells it overlaps
+     * @param grid
+     * @param xmin
+     * @param ymin
+     * @param xmax
+     * @param ymax
+     */
+    public HashCollinearPoints(PointGrid grid, int xmin, int ymin, int xmax, int ymax) {
+        this(grid.window(xmin, ymin, xmax, ymax));
+    }
+
+    /**
+     * open-addressing table from reduced direction to (count, largest index,
+     * whether any point before the origin lies that way); cleared per origin
+     * by bumping a generation stamp instead of refilling the arrays
+     */
+    private static class DirectionTable
+    {
+        final long[] dx, dy;
+        final int[] count, last, stamp;
+        final boolean[] smaller;
+        private final int mask;
+        private int generation;
+
+        DirectionTable(int n) {
+            int capacity = Integer.highestOneBit(Math.max(2, 2*n - 1)) << 1;
+            mask = capacity - 1;
+            dx = new long[capacity];
+            dy = new long[capacity];
+            count = new int[capacity];
+            last = new int[capacity];
+            stamp = new int[capacity];
+            smaller = new boolean[capacity];
+        }
+
+        void clear() {
+            generation++;
+        }
+
+        // count point j in the direction of (ddx, ddy); returns its slot
+        int add(long ddx, long ddy, int j, boolean beforeOrigin) {
+            int slot = slotOf(ddx, ddy);
+            count[slot]++;
+            last[slot] = j;     // j increases, so this is the largest index so far
+            if (beforeOrigin) smaller[slot] = true;
+            return slot;
+        }
+
+        // slot for the direction of (ddx, ddy), claiming an empty one if new
+        private int slotOf(long ddx, long ddy) {
+            long g = gcd(Math.abs(ddx), Math.abs(ddy));
+            ddx /= g;
+            ddy /= g;
+            if (ddx < 0 || (ddx == 0 && ddy < 0)) {
+                ddx = -ddx;
+                ddy = -ddy;
+            }
+
+            long h = (ddx * 0x9E3779B97F4A7C15L) ^ (ddy * 0xC2B2AE3D27D4EB4FL);
+            int slot = (int) (h ^ (h >>> 29)) & mask;
+            while (stamp[slot] == generation && (dx[slot] != ddx || dy[slot] != ddy))
+                slot = (slot + 1) & mask;
+
+            if (stamp[slot] != generation) {
+                stamp[slot] = generation;
+                dx[slot] = ddx;
+                dy[slot] = ddy;
+                count[slot] = 0;
+                smaller[slot] = false;
+            }
+            return slot;
+        }
+
+        // binary gcd of non-negative a and b, not both zero
+        private static long gcd(long a, long b) {
+            if (a == 0) return b;
+            if (b == 0) return a;
+            int shift = Long.numberOfTrailingZeros(a | b);
+            a >>>= Long.numberOfTrailingZeros(a);
+            while (b != 0) {
+                b >>>= Long.numberOfTrailingZeros(b);
+                if (a > b) {
+                    long t = a;
+                    a = b;
+                    b = t;
+                }
+                b -= a;
+            }
+            return a << shift;
+        }
+    }
+
+    /**
+     * the number of line segments
+     * @return
+     */
+    public int numberOfSegments() {
+        return numberOfSegments;
+    }
+
+    /**
+     * the line segments
+     * @return
+     */
+    public LineSegment[] segments() {
+        return segments;
+    }
+
+    public static void main(String[] args) {
+
+        // read the n points from a file
+        In in = new In("input48.txt");
+        int n = in.readInt();
+        Point[] points = new Point[n];
+        for (int i = 0; i < n; i++) {
+            int x = in.readInt();
+            int y = in.readInt();
+            points[i] = new Point(x, y);
+        }
+
+        CollinearPoints collinear = new HashCollinearPoints(points);
+        for (int i = 0; i < collinear.numberOfSegments(); i++) {
+            System.out.println(collinear.segments()[i].toString());
+        }
+    }
+}
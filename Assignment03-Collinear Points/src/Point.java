@@ -17,6 +17,24 @@ public class Point implements Comparable<Point> {
         this.y = y;
     }
 
+    /**
+     * Returns the x-coordinate of this point.
+     *
+     * @return the x-coordinate
+     */
+    public int x() {
+        return x;
+    }
+
+    /**
+     * Returns the y-coordinate of this point.
+     *
+     * @return the y-coordinate
+     */
+    public int y() {
+        return y;
+    }
+
     /**
      * Draws this point to standard draw.
      */
@@ -0,0 +1,95 @@
+public class PointGrid {
+
+    private final PointSet points;
+    private final long minX, minY;
+    private final long cellWidth, cellHeight;
+    private final int cells;        // cells per side
+    private final int[] start;      // points of cell c are order[start[c], start[c+1])
+    private final int[] order;
+
+    /**
+     * Buckets the points into a grid of about one point per cell on average,
+     * so that windowed queries only visit the cells they overlap.
+     *
+     * @param  points the points
+     * @throws IllegalArgumentException if points is null
+     */
+    public PointGrid(PointSet points) {
+        if (points == null)
+            throw new java.lang.IllegalArgumentException();
+
+        this.points = points;
+        int n = points.size();
+        long lx = Long.MAX_VALUE, ly = Long.MAX_VALUE, hx = Long.MIN_VALUE, hy = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            lx = Math.min(lx, points.x(i));
+            ly = Math.min(ly, points.y(i));
+            hx = Math.max(hx, points.x(i));
+            hy = Math.max(hy, points.y(i));
+        }
+        if (n == 0) lx = ly = hx = hy = 0;
+
+        minX = lx;
+        minY = ly;
+        cells = Math.max(1, (int) Math.sqrt(n));
+        cellWidth = (hx - lx) / cells + 1;
+        cellHeight = (hy - ly) / cells + 1;
+
+        // counting sort of point indices by cell
+        start = new int[cells * cells + 1];
+        for (int i = 0; i < n; i++)
+            start[cellOf(i) + 1]++;
+        for (int c = 0; c < cells * cells; c++)
+            start[c + 1] += start[c];
+        order = new int[n];
+        int[] next = start.clone();
+        for (int i = 0; i < n; i++)
+            order[next[cellOf(i)]++] = i;
+    }
+
+    /**
+     * Returns the points lying in [xmin, xmax] x [ymin, ymax].
+     *
+     * @return the points in the window
+     * @throws IllegalArgumentException if xmin > xmax or ymin > ymax
+     */
+    public PointSet window(int xmin, int ymin, int xmax, int ymax) {
+        if (xmin > xmax || ymin > ymax)
+            throw new java.lang.IllegalArgumentException();
+
+        int cx0 = column(xmin), cx1 = column(xmax);
+        int cy0 = row(ymin), cy1 = row(ymax);
+
+        int count = 0;
+        for (int cy = cy0; cy <= cy1; cy++)
+            count += start[cy * cells + cx1 + 1] - start[cy * cells + cx0];
+
+        int[] xs = new int[count], ys = new int[count];
+        int k = 0;
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int j = start[cy * cells + cx0]; j < start[cy * cells + cx1 + 1]; j++) {
+                int x = points.x(order[j]), y = points.y(order[j]);
+                if (x >= xmin && x <= xmax && y >= ymin && y <= ymax) {
+                    xs[k] = x;
+                    ys[k] = y;
+                    k++;
+                }
+            }
+        }
+        return new PointSet(java.util.Arrays.copyOf(xs, k), java.util.Arrays.copyOf(ys, k));
+    }
+
+    private int cellOf(int i) {
+        return row(points.y(i)) * cells + column(points.x(i));
+    }
+
+    // clamped, so windows reaching past the points still map to edge cells
+    private int column(long x) {
+        return (int) Math.max(0, Math.min(cells - 1, Math.floorDiv(x - minX, cellWidth)));
+    }
+
+    private int row(long y) {
+        return (int) Math.max(0, Math.min(cells - 1, Math.floorDiv(y - minY, cellHeight)));
+    }
+
+}
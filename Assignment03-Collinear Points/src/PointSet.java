@@ -0,0 +1,104 @@
+import java.util.Arrays;
+
+public class PointSet {
+
+    private final int[] xs;     // x-coordinates, in the order of Point.compareTo
+    private final int[] ys;     // y-coordinates, in the same order
+
+    /**
+     * Initializes a set of distinct points from parallel coordinate arrays.
+     *
+     * @param  xs the x-coordinates
+     * @param  ys the y-coordinates
+     * @throws IllegalArgumentException if either array is null, their lengths
+     *         differ, or two points are equal
+     */
+    public PointSet(int[] xs, int[] ys) {
+        if (xs == null || ys == null || xs.length != ys.length)
+            throw new java.lang.IllegalArgumentException();
+
+        long[] keys = new long[xs.length];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = key(xs[i], ys[i]);
+
+        this.xs = new int[keys.length];
+        this.ys = new int[keys.length];
+        sortInto(keys);
+    }
+
+    /**
+     * Initializes a set of distinct points from point objects.
+     *
+     * @param  points the points
+     * @throws IllegalArgumentException if points or any entry is null, or two points are equal
+     */
+    public PointSet(Point[] points) {
+        if (points == null)
+            throw new java.lang.IllegalArgumentException();
+
+        long[] keys = new long[points.length];
+        for (int i = 0; i < keys.length; i++) {
+            if (points[i] == null) throw new java.lang.IllegalArgumentException();
+            keys[i] = key(points[i].x(), points[i].y());
+        }
+
+        this.xs = new int[keys.length];
+        this.ys = new int[keys.length];
+        sortInto(keys);
+    }
+
+    /**
+     * Returns the number of points.
+     *
+     * @return the number of points
+     */
+    public int size() {
+        return xs.length;
+    }
+
+    /**
+     * Returns the x-coordinate of the i-th smallest point.
+     *
+     * @param  i the index, in the order of Point.compareTo
+     * @return the x-coordinate
+     */
+    public int x(int i) {
+        return xs[i];
+    }
+
+    /**
+     * Returns the y-coordinate of the i-th smallest point.
+     *
+     * @param  i the index, in the order of Point.compareTo
+     * @return the y-coordinate
+     */
+    public int y(int i) {
+        return ys[i];
+    }
+
+    /**
+     * Returns the i-th smallest point as a Point object.
+     *
+     * @param  i the index, in the order of Point.compareTo
+     * @return a new point with the i-th coordinates
+     */
+    public Point point(int i) {
+        return new Point(xs[i], ys[i]);
+    }
+
+    // y in the high word, x flipped to unsigned in the low word, so that
+    // signed long order is Point.compareTo order
+    private static long key(int x, int y) {
+        return (long) y << 32 | (x ^ Integer.MIN_VALUE) & 0xffffffffL;
+    }
+
+    private void sortInto(long[] keys) {
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0 && keys[i] == keys[i-1]) throw new java.lang.IllegalArgumentException();
+            xs[i] = (int) keys[i] ^ Integer.MIN_VALUE;
+            ys[i] = (int) (keys[i] >> 32);
+        }
+    }
+
+}
@@ -0,0 +1,255 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+public class AssignmentBenchmarks {
+
+    private static final int BATCH = 1 << 16;    // elements per Deque / RandomizedQueue batch
+
+    private static final Integer[] ITEMS = new Integer[BATCH];
+    static {
+        for (int i = 0; i < BATCH; i++)
+            ITEMS[i] = i;
+    }
+
+    /**
+     * run every benchmark, printing progress to stderr and the JSON results
+     * to stdout, or to the file named by the first argument; "quick" cuts
+     * iteration counts for a smoke run
+     * @param args
+     */
+    public static void main(String[] args) {
+        boolean quick = false;
+        String output = null;
+        for (String arg : args) {
+            if (arg.equals("quick")) quick = true;
+            else output = arg;
+        }
+
+        Bench bench = quick ? new Bench(1, 3, 100) : new Bench(5, 10, 1000);
+
+        percolation(bench);
+        percolationStats(bench);
+        deque(bench);
+        randomizedQueue(bench);
+        collinear(bench);
+
+        if (output == null) {
+            System.out.print(bench.toJson());
+            return;
+        }
+        try {
+            Files.write(Paths.get(output), bench.toJson().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void percolation(Bench bench) {
+        for (int n : new int[] { 64, 256, 1024 }) {
+            SplittableRandom random = new SplittableRandom(n);
+            int[] sites = permutation(n*n, random);
+
+            // one op = one open() call, then a percolates() check
+            bench.measure("Percolation.open+percolates", "n=" + n, () -> {
+                Percolation percolation = new Percolation(n);
+                int opened = 0;
+                while (!percolation.percolates()) {
+                    int site = sites[opened++];
+                    percolation.open(site / n + 1, site % n + 1);
+                }
+                Bench.sink += percolation.numberOfOpenSites();
+                return opened;
+            });
+
+            Percolation full = new Percolation(n);
+            for (int site : sites)
+                if (random.nextInt(100) < 60) full.open(site / n + 1, site % n + 1);
+
+            bench.measure("Percolation.isFull", "n=" + n, () -> {
+                int count = 0;
+                for (int i = 0; i < 1024; i++) {
+                    int site = sites[i % sites.length];
+                    if (full.isFull(site / n + 1, site % n + 1)) count++;
+                }
+                Bench.sink += count;
+                return 1024;
+            });
+        }
+    }
+
+    private static void percolationStats(Bench bench) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] threadCounts = cores == 1 ? new int[] { 1 } : new int[] { 1, cores };
+        for (int n : new int[] { 64, 256 }) {
+            for (int threads : threadCounts) {
+                int trials = 4 * threads;
+                long[] seed = { 0 };
+
+                // one op = one trial
+                bench.measure("PercolationStats.trials", "n=" + n + ",threads=" + threads, () -> {
+                    PercolationStats stats = new PercolationStats(n, trials, seed[0]++, threads);
+                    Bench.sink += (long) (stats.mean() * 1e6);
+                    return trials;
+                });
+            }
+        }
+    }
+
+    private static void deque(Bench bench) {
+        // one op = one add or one remove
+        bench.measure("Deque.addFirst+removeLast", "batch=" + BATCH, () -> {
+            Deque<Integer> deque = new Deque<Integer>();
+            for (int i = 0; i < BATCH; i++)
+                deque.addFirst(ITEMS[i]);
+            long sum = 0;
+            for (int i = 0; i < BATCH; i++)
+                sum += deque.removeLast();
+            Bench.sink += sum;
+            return 2 * BATCH;
+        });
+
+        bench.measure("Deque.addLast+removeLast", "batch=" + BATCH, () -> {
+            Deque<Integer> deque = new Deque<Integer>();
+            for (int i = 0; i < BATCH; i++)
+                deque.addLast(ITEMS[i]);
+            long sum = 0;
+            for (int i = 0; i < BATCH; i++)
+                sum += deque.removeLast();
+            Bench.sink += sum;
+            return 2 * BATCH;
+        });
+
+        Deque<Integer> filled = new Deque<Integer>();
+        for (int i = 0; i < BATCH; i++)
+            filled.addLast(ITEMS[i]);
+
+        // one op = one element visited
+        bench.measure("Deque.iterator", "size=" + BATCH, () -> {
+            long sum = 0;
+            for (int item : filled)
+                sum += item;
+            Bench.sink += sum;
+            return BATCH;
+        });
+    }
+
+    private static void randomizedQueue(Bench bench) {
+        // one op = one enqueue or one dequeue
+        bench.measure("RandomizedQueue.enqueue+dequeue", "batch=" + BATCH, () -> {
+            RandomizedQueue<Integer> queue = new RandomizedQueue<Integer>();
+            for (int i = 0; i < BATCH; i++)
+                queue.enqueue(ITEMS[i]);
+            long sum = 0;
+            for (int i = 0; i < BATCH; i++)
+                sum += queue.dequeue();
+            Bench.sink += sum;
+            return 2 * BATCH;
+        });
+
+        RandomizedQueue<Integer> filled = new RandomizedQueue<Integer>();
+        for (int i = 0; i < BATCH; i++)
+            filled.enqueue(ITEMS[i]);
+
+        // one op = one element visited
+        bench.measure("RandomizedQueue.iterator.full", "size=" + BATCH, () -> {
+            long sum = 0;
+            for (int item : filled)
+                sum += item;
+            Bench.sink += sum;
+            return BATCH;
+        });
+
+        // one op = one iterator created and read for 8 elements
+        bench.measure("RandomizedQueue.iterator.first8", "size=" + BATCH, () -> {
+            long sum = 0;
+            for (int k = 0; k < 16; k++) {
+                Iterator<Integer> it = filled.iterator();
+                for (int i = 0; i < 8; i++)
+                    sum += it.next();
+            }
+            Bench.sink += sum;
+            return 16;
+        });
+    }
+
+    private static void collinear(Bench bench) {
+        java.util.concurrent.ForkJoinPool pool = java.util.concurrent.ForkJoinPool.commonPool();
+        for (int n : new int[] { 8, 48, 400, 1000, 2000 }) {
+            Point[] points = points(n, new SplittableRandom(n));
+
+            // one op = one FastCollinearPoints construction
+            bench.measure("FastCollinearPoints", "n=" + n, () -> {
+                FastCollinearPoints collinear = new FastCollinearPoints(points);
+                Bench.sink += collinear.numberOfSegments();
+                return 1;
+            });
+
+            bench.measure("FastCollinearPoints.PointSet", "n=" + n, () -> {
+                FastCollinearPoints collinear = new FastCollinearPoints(new PointSet(points));
+                Bench.sink += collinear.numberOfSegments();
+                return 1;
+            });
+
+            bench.measure("HashCollinearPoints", "n=" + n, () -> {
+                HashCollinearPoints collinear = new HashCollinearPoints(new PointSet(points));
+                Bench.sink += collinear.numberOfSegments();
+                return 1;
+            });
+
+            bench.measure("FastCollinearPoints.PointSet.parallel",
+                    "n=" + n + ",threads=" + pool.getParallelism(), () -> {
+                FastCollinearPoints collinear = new FastCollinearPoints(new PointSet(points), pool);
+                Bench.sink += collinear.numberOfSegments();
+                return 1;
+            });
+        }
+    }
+
+    /**
+     * n distinct points in [0, 32768)^2, about a third of them planted on
+     * lines of 4 to 8 points so there are segments to find
+     */
+    private static Point[] points(int n, SplittableRandom random) {
+        Set<Long> seen = new HashSet<Long>();
+        Point[] points = new Point[n];
+        int count = 0;
+
+        while (count < n / 3) {
+            int x = random.nextInt(16384), y = random.nextInt(16384);
+            int dx = random.nextInt(1, 512), dy = random.nextInt(-511, 512);
+            int length = Math.min(random.nextInt(4, 9), n / 3 - count);
+            for (int i = 0; i < length; i++)
+                count = add(points, count, seen, x + i*dx, y + i*dy);
+        }
+        while (count < n)
+            count = add(points, count, seen, random.nextInt(32768), random.nextInt(32768));
+
+        return points;
+    }
+
+    private static int add(Point[] points, int count, Set<Long> seen, int x, int y) {
+        if (x < 0 || x >= 32768 || y < 0 || y >= 32768 || !seen.add((long) x << 32 | y))
+            return count;
+        points[count] = new Point(x, y);
+        return count + 1;
+    }
+
+    private static int[] permutation(int n, SplittableRandom random) {
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++)
+            a[i] = i;
+        for (int i = n-1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = a[i]; a[i] = a[j]; a[j] = t;
+        }
+        return a;
+    }
+
+}
@@ -0,0 +1,99 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Bench {
+
+    /**
+     * one batch of work; returns how many operations it performed
+     */
+    public interface Workload {
+        long run();
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /** results are folded in here so the JIT cannot drop the work */
+    public static volatile long sink;
+
+    private final int warmups;
+    private final int iterations;
+    private final long iterationNanos;
+    private final List<String> results = new ArrayList<String>();
+
+    /**
+     * run warmups untimed iterations and then iterations timed ones,
+     * each repeating the workload for about iterationMillis
+     * @param warmups
+     * @param iterations
+     * @param iterationMillis
+     */
+    public Bench(int warmups, int iterations, long iterationMillis) {
+        if (warmups < 0 || iterations < 2 || iterationMillis <= 0)
+            throw new java.lang.IllegalArgumentException();
+
+        this.warmups = warmups;
+        this.iterations = iterations;
+        this.iterationNanos = iterationMillis * 1000000L;
+    }
+
+    /**
+     * measure throughput of workload in operations per second, with the
+     * allocation per operation of the calling thread
+     * @param name
+     * @param param
+     * @param workload
+     */
+    public void measure(String name, String param, Workload workload) {
+        for (int i = 0; i < warmups; i++)
+            iteration(workload);
+
+        long thread = Thread.currentThread().getId();
+        double[] scores = new double[iterations];
+        long allocated = THREADS.getThreadAllocatedBytes(thread);
+        long ops = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            long done = iteration(workload);
+            scores[i] = done / ((System.nanoTime() - start) / 1e9);
+            ops += done;
+        }
+        allocated = THREADS.getThreadAllocatedBytes(thread) - allocated;
+
+        double mean = 0;
+        for (double score : scores)
+            mean += score;
+        mean /= iterations;
+        double var = 0;
+        for (double score : scores)
+            var += (score - mean) * (score - mean);
+        double error = 1.96 * Math.sqrt(var / (iterations - 1)) / Math.sqrt(iterations);
+
+        String result = String.format(java.util.Locale.ROOT,
+                "{\"benchmark\":\"%s\",\"param\":\"%s\",\"score\":%.3f,\"error\":%.3f,"
+                + "\"unit\":\"ops/s\",\"allocBytesPerOp\":%.1f}",
+                name, param, mean, error, allocated / (double) ops);
+        results.add(result);
+        System.err.println(result);
+    }
+
+    /**
+     * all results so far as a JSON array
+     * @return
+     */
+    public String toJson() {
+        return "[\n  " + String.join(",\n  ", results) + "\n]\n";
+    }
+
+    private long iteration(Workload workload) {
+        long deadline = System.nanoTime() + iterationNanos;
+        long ops = 0;
+        do {
+            ops += workload.run();
+        } while (System.nanoTime() < deadline);
+        return ops;
+    }
+
+}